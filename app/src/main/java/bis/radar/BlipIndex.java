@@ -0,0 +1,122 @@
+package bis.radar;
+
+/**
+ * Immutable polar bucket index of radar targets: blips are sorted by angle sector
+ * and then radius band into primitive arrays, so a frame can visit only the
+ * buckets it lights. Positions are precomputed relative to the radar center, in
+ * units of the radar radius.
+ */
+public final class BlipIndex {
+
+    public static final BlipIndex EMPTY = new BlipIndex(1, 1, new int[2], new float[0], new float[0], new int[0]);
+
+    private final int mSectors;
+    private final int mBands;
+    private final int[] mStart;
+    private final float[] mX;
+    private final float[] mY;
+    private final int[] mIds;
+
+    private BlipIndex(int sectors, int bands, int[] start, float[] x, float[] y, int[] ids) {
+        mSectors = sectors;
+        mBands = bands;
+        mStart = start;
+        mX = x;
+        mY = y;
+        mIds = ids;
+    }
+
+    /**
+     * Builds an index with a counting sort, blips with a NaN or out of [0..1]
+     * distance are left out.
+     *
+     * @param bearings  clockwise angles in degrees from the 3 o'clock direction, like the sweep
+     * @param distances distances from the center, 1 being the radar radius
+     */
+    public static BlipIndex build(int sectors, int bands, float[] bearings, float[] distances, int count) {
+        if (sectors <= 0 || bands <= 0) {
+            throw new IllegalArgumentException("sectors and bands must be positive");
+        }
+
+        int buckets = sectors * bands;
+        int[] bucketOf = new int[count];
+        int[] start = new int[buckets + 1];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            float distance = distances[i];
+            if (!(distance >= 0 && distance <= 1)) {
+                bucketOf[i] = -1;
+                continue;
+            }
+            int bucket = getSector(bearings[i], sectors) * bands + Math.min(bands - 1, (int) (distance * bands));
+            bucketOf[i] = bucket;
+            start[bucket + 1]++;
+            size++;
+        }
+        for (int i = 0; i < buckets; i++) {
+            start[i + 1] += start[i];
+        }
+
+        int[] next = new int[buckets];
+        System.arraycopy(start, 0, next, 0, buckets);
+        float[] x = new float[size];
+        float[] y = new float[size];
+        int[] ids = new int[size];
+        for (int i = 0; i < count; i++) {
+            int bucket = bucketOf[i];
+            if (bucket < 0) {
+                continue;
+            }
+            int slot = next[bucket]++;
+            double radians = Math.toRadians(bearings[i]);
+            x[slot] = (float) Math.cos(radians) * distances[i];
+            y[slot] = (float) Math.sin(radians) * distances[i];
+            ids[slot] = i;
+        }
+        return new BlipIndex(sectors, bands, start, x, y, ids);
+    }
+
+    public static int getSector(float bearing, int sectors) {
+        float turns = bearing / 360;
+        turns -= (float) Math.floor(turns);
+        return Math.min(sectors - 1, (int) (turns * sectors));
+    }
+
+    public int getSectorCount() {
+        return mSectors;
+    }
+
+    public int getBandCount() {
+        return mBands;
+    }
+
+    public int size() {
+        return mIds.length;
+    }
+
+    /**
+     * @return position of the first blip of a bucket, its blips end at the start of the next band
+     */
+    public int getStart(int sector, int band) {
+        return mStart[sector * mBands + band];
+    }
+
+    public int getEnd(int sector, int band) {
+        return mStart[sector * mBands + band + 1];
+    }
+
+    public float getX(int position) {
+        return mX[position];
+    }
+
+    public float getY(int position) {
+        return mY[position];
+    }
+
+    /**
+     * @return index of the blip in the arrays the index was built from
+     */
+    public int getId(int position) {
+        return mIds[position];
+    }
+}
@@ -0,0 +1,114 @@
+package bis.radar;
+
+import java.util.Arrays;
+
+/**
+ * Targets plotted on a radar. Blips can be replaced in bulk or added, moved and
+ * removed one at a time from any thread; {@link #commit()} then rebuilds the
+ * {@link BlipIndex} off the drawing thread and publishes it atomically.
+ */
+public class BlipLayer {
+
+    private static final int DEFAULT_SECTORS = 72;
+    private static final int DEFAULT_BANDS = 16;
+
+    private final int mSectors;
+    private final int mBands;
+    private final Object mLock = new Object();
+    private float[] mBearings = new float[16];
+    private float[] mDistances = new float[16];
+    private int mCount;
+    private int[] mFreeIds = new int[16];
+    private int mFreeCount;
+    private volatile BlipIndex mIndex = BlipIndex.EMPTY;
+
+    public BlipLayer() {
+        this(DEFAULT_SECTORS, DEFAULT_BANDS);
+    }
+
+    public BlipLayer(int sectors, int bands) {
+        if (sectors <= 0 || bands <= 0) {
+            throw new IllegalArgumentException("sectors and bands must be positive");
+        }
+        mSectors = sectors;
+        mBands = bands;
+    }
+
+    /**
+     * @return the last committed index, safe to read from the drawing thread
+     */
+    public BlipIndex getIndex() {
+        return mIndex;
+    }
+
+    /**
+     * Replaces every blip, blip ids become the positions in the given arrays.
+     */
+    public void setBlips(float[] bearings, float[] distances, int count) {
+        synchronized (mLock) {
+            mBearings = Arrays.copyOf(bearings, Math.max(16, count));
+            mDistances = Arrays.copyOf(distances, Math.max(16, count));
+            mCount = count;
+            mFreeCount = 0;
+        }
+    }
+
+    /**
+     * @return id of the new blip
+     */
+    public int addBlip(float bearing, float distance) {
+        synchronized (mLock) {
+            int id;
+            if (mFreeCount > 0) {
+                id = mFreeIds[--mFreeCount];
+            } else {
+                if (mCount == mBearings.length) {
+                    mBearings = Arrays.copyOf(mBearings, mCount * 2);
+                    mDistances = Arrays.copyOf(mDistances, mCount * 2);
+                }
+                id = mCount++;
+            }
+            mBearings[id] = bearing;
+            mDistances[id] = distance;
+            return id;
+        }
+    }
+
+    public void moveBlip(int id, float bearing, float distance) {
+        synchronized (mLock) {
+            checkId(id);
+            mBearings[id] = bearing;
+            mDistances[id] = distance;
+        }
+    }
+
+    public void removeBlip(int id) {
+        synchronized (mLock) {
+            checkId(id);
+            mDistances[id] = Float.NaN;
+            if (mFreeCount == mFreeIds.length) {
+                mFreeIds = Arrays.copyOf(mFreeIds, mFreeCount * 2);
+            }
+            mFreeIds[mFreeCount++] = id;
+        }
+    }
+
+    private void checkId(int id) {
+        if (id < 0 || id >= mCount || Float.isNaN(mDistances[id])) {
+            throw new IllegalArgumentException("No blip with id " + id);
+        }
+    }
+
+    /**
+     * Publishes the blips as they are now; call it from a worker thread, building
+     * the index is linear in the number of blips.
+     */
+    public BlipIndex commit() {
+        BlipIndex index;
+        synchronized (mLock) {
+            index = BlipIndex.build(mSectors, mBands, mBearings, mDistances, mCount);
+        }
+        mIndex = index;
+        return index;
+    }
+}
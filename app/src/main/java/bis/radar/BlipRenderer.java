@@ -0,0 +1,116 @@
+package bis.radar;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import java.util.Arrays;
+
+/**
+ * Draws the blips of a {@link BlipLayer} lit by the sweep beam or by the ring
+ * fronts, visiting only the buckets of the index that are lit and issuing one
+ * point batch per lit sector (sweep) or radius band (rings) at its fade.
+ */
+class BlipRenderer {
+
+    private static final float RING_FADE = 0.15f;
+    private static final float POINT_SIZE = 6;
+
+    private final RadarModel mModel;
+    private final Paint mPaint;
+    private float[] mPoints = new float[64];
+    private float[] mBandAlpha = new float[0];
+
+    public BlipRenderer(RadarModel model) {
+        mModel = model;
+        mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mPaint.setColor(model.getColor());
+        mPaint.setStrokeCap(Paint.Cap.ROUND);
+        mPaint.setStrokeWidth(POINT_SIZE);
+    }
+
+    /**
+     * Lights the blips in the {@link RadarModel#getSweepTrail() trail} behind the beam,
+     * fading with it; sectors whose blips would fade to nothing are not visited.
+     */
+    public void drawSwept(Canvas canvas, BlipIndex index, float cx, float cy, float radius, float sweepAngle) {
+        float fade = mModel.getSweepTrail();
+        int sectors = index.getSectorCount();
+        float sectorAngle = 360f / sectors;
+        int lit = Math.min(sectors, (int) Math.ceil(fade / sectorAngle) + 1);
+        int beamSector = BlipIndex.getSector(sweepAngle, sectors);
+
+        for (int i = 0; i < lit; i++) {
+            int sector = (beamSector - i + sectors) % sectors;
+            float behind = sweepAngle - (sector + 0.5f) * sectorAngle;
+            behind -= 360 * (float) Math.floor(behind / 360);
+            if (behind > 180 && i == 0) {
+                // The beam has not reached the middle of its own sector yet.
+                behind = 0;
+            }
+            int alpha = (int) ((1 - behind / fade) * 255);
+            if (alpha <= 0) {
+                continue;
+            }
+            mPaint.setAlpha(alpha);
+            drawPoints(canvas, appendBuckets(index, sector, 0, index.getBandCount(), 0, cx, cy, radius));
+        }
+    }
+
+    /**
+     * Lights the blips just inside every ring front, fading with the ring.
+     */
+    public void drawRinged(Canvas canvas, BlipIndex index, RadarFrame frame, float cx, float cy, float radius) {
+        int bands = index.getBandCount();
+        if (mBandAlpha.length != bands) {
+            mBandAlpha = new float[bands];
+        }
+        for (int band = 0; band < bands; band++) {
+            mBandAlpha[band] = 0;
+        }
+
+        for (int i = 0; i < frame.getCount(); i++) {
+            float front = frame.getRadius(i) / radius;
+            float ringAlpha = frame.getStrokeAlpha(i) / (float) mModel.getStrokeAlpha();
+            int first = Math.max(0, (int) ((front - RING_FADE) * bands));
+            int last = Math.min(bands - 1, (int) (front * bands));
+            for (int band = first; band <= last; band++) {
+                float behind = front - (band + 0.5f) / bands;
+                float alpha = ringAlpha * (1 - Math.max(0, behind) / RING_FADE);
+                mBandAlpha[band] = Math.max(mBandAlpha[band], alpha);
+            }
+        }
+
+        for (int band = 0; band < bands; band++) {
+            int alpha = (int) (mBandAlpha[band] * 255);
+            if (alpha <= 0) {
+                continue;
+            }
+            int count = 0;
+            for (int sector = 0; sector < index.getSectorCount(); sector++) {
+                count = appendBuckets(index, sector, band, band + 1, count, cx, cy, radius);
+            }
+            mPaint.setAlpha(alpha);
+            drawPoints(canvas, count);
+        }
+    }
+
+    private int appendBuckets(BlipIndex index, int sector, int fromBand, int toBand, int offset,
+                              float cx, float cy, float radius) {
+        int start = index.getStart(sector, fromBand);
+        int count = index.getEnd(sector, toBand - 1) - start;
+        if (mPoints.length < (offset + count) * 2) {
+            mPoints = Arrays.copyOf(mPoints, Integer.highestOneBit((offset + count) * 2) << 1);
+        }
+        for (int i = 0; i < count; i++) {
+            mPoints[(offset + i) * 2] = cx + index.getX(start + i) * radius;
+            mPoints[(offset + i) * 2 + 1] = cy + index.getY(start + i) * radius;
+        }
+        return offset + count;
+    }
+
+    private void drawPoints(Canvas canvas, int count) {
+        if (count > 0) {
+            canvas.drawPoints(mPoints, 0, count * 2, mPaint);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package bis.radar;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Paint.Style;
+import android.os.Handler;
+import android.os.Process;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * One period of a warmed up {@link RadarModel}, rendered in the background into
+ * the frames described by a {@link FlipbookPlan}.
+ */
+class Flipbook {
+
+    public interface Callback {
+        void onFlipbookReady(Flipbook flipbook);
+    }
+
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    r.run();
+                }
+            }, "RadarFlipbook");
+        }
+    });
+
+    private final RadarModel mModel;
+    private final FlipbookPlan mPlan;
+    private final Bitmap[] mFrames;
+    private final float mMinRadius;
+    private final float mMaxRadius;
+    private final float mRefreshRate;
+    private volatile boolean mCancelled;
+    private boolean mReady;
+
+    public Flipbook(RadarModel model, FlipbookPlan plan, float minRadius, float maxRadius, float refreshRate) {
+        mModel = model;
+        mPlan = plan;
+        mFrames = new Bitmap[plan.getFrameCount()];
+        mMinRadius = minRadius;
+        mMaxRadius = maxRadius;
+        mRefreshRate = refreshRate;
+    }
+
+    public boolean hasGeometry(float minRadius, float maxRadius, float refreshRate) {
+        return minRadius == mMinRadius && maxRadius == mMaxRadius && refreshRate == mRefreshRate;
+    }
+
+    public FlipbookPlan getPlan() {
+        return mPlan;
+    }
+
+    public boolean isReady() {
+        return mReady;
+    }
+
+    public Bitmap getFrame(long time) {
+        return mFrames[mPlan.getFrame(time)];
+    }
+
+    /**
+     * Renders the frames in the background, {@code callback} is called on the calling thread.
+     */
+    public void render(final Callback callback) {
+        final Handler handler = new Handler();
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!renderFrames()) {
+                    return;
+                }
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!mCancelled) {
+                            mReady = true;
+                            callback.onFlipbookReady(Flipbook.this);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    private boolean renderFrames() {
+        float scale = 1f / mPlan.getScale();
+        float center = mPlan.getFrameSize() / 2f;
+
+        RadarFrame frame = new RadarFrame(mModel, mRefreshRate);
+        Canvas canvas = new Canvas();
+        Paint strokePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        strokePaint.setStyle(Style.STROKE);
+        strokePaint.setStrokeWidth(mModel.getStrokeWidth() * scale);
+        Paint fillPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        fillPaint.setStyle(Style.FILL);
+
+        long renderNanos = 0;
+        for (int i = 0; i < mFrames.length; i++) {
+            if (mCancelled) {
+                return false;
+            }
+
+            Bitmap bitmap;
+            try {
+                bitmap = Bitmap.createBitmap(mPlan.getFrameSize(), mPlan.getFrameSize(), Bitmap.Config.ALPHA_8);
+            } catch (OutOfMemoryError e) {
+                return false;
+            }
+
+            long start = System.nanoTime();
+            frame.update(mModel.getWarmUp() + mPlan.getFrameTime(i), mMinRadius, mMaxRadius);
+            canvas.setBitmap(bitmap);
+            for (int ring = 0; ring < frame.getCount(); ring++) {
+                float radius = frame.getRadius(ring) * scale;
+                fillPaint.setAlpha(frame.getFillAlpha(ring));
+                canvas.drawCircle(center, center, radius, fillPaint);
+                strokePaint.setAlpha(frame.getStrokeAlpha(ring));
+                canvas.drawCircle(center, center, radius, strokePaint);
+            }
+            renderNanos += System.nanoTime() - start;
+            mFrames[i] = bitmap;
+        }
+        canvas.setBitmap(null);
+
+        mPlan.setRenderNanosPerFrame(renderNanos / mFrames.length);
+        return true;
+    }
+}
@@ -0,0 +1,113 @@
+package bis.radar;
+
+import java.util.Locale;
+
+/**
+ * How one period of a {@link RadarModel} is pre-rendered into frames for a given
+ * size and memory budget, and what it costs: the memory held by the frames
+ * against the time it took to draw each frame live.
+ * <p>
+ * The radar is a single colour, so frames are one byte per pixel alpha masks
+ * tinted when drawn. The budget first lowers the frame count down to half the
+ * display rate, then the resolution, and gives up on pre-rendering otherwise.
+ */
+public final class FlipbookPlan {
+
+    private static final int[] SCALES = {1, 2};
+
+    private final int mFrameCount;
+    private final int mScale;
+    private final int mFrameSize;
+    private final int mPeriod;
+    private volatile long mRenderNanos;
+
+    private FlipbookPlan(int frameCount, int scale, int frameSize, int period) {
+        mFrameCount = frameCount;
+        mScale = scale;
+        mFrameSize = frameSize;
+        mPeriod = period;
+    }
+
+    /**
+     * @param size     side in pixels of the square that contains every ring
+     * @param maxBytes memory budget of all the frames
+     */
+    public static FlipbookPlan create(RadarModel model, int size, float refreshRate, long maxBytes) {
+        int period = model.getPeriod();
+        int idealFrames = Math.max(1, Math.round(period * refreshRate / 1000));
+        int minFrames = Math.max(1, idealFrames / 2);
+
+        for (int scale : SCALES) {
+            int frameSize = (size + scale - 1) / scale;
+            long frameBytes = (long) frameSize * frameSize;
+            long frames = Math.min(idealFrames, maxBytes / Math.max(1, frameBytes));
+            if (frames >= minFrames) {
+                return new FlipbookPlan((int) frames, scale, frameSize, period);
+            }
+        }
+        return new FlipbookPlan(0, 0, 0, period);
+    }
+
+    /**
+     * @return {@code false} if the budget cannot hold enough frames and the radar
+     * must be drawn live
+     */
+    public boolean isPrerendered() {
+        return mFrameCount > 0;
+    }
+
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * @return downscaling factor of the frames, drawn back with bitmap filtering
+     */
+    public int getScale() {
+        return mScale;
+    }
+
+    /**
+     * @return side in pixels of every frame
+     */
+    public int getFrameSize() {
+        return mFrameSize;
+    }
+
+    public int getPeriod() {
+        return mPeriod;
+    }
+
+    public int getFrame(long time) {
+        return (int) (time % mPeriod * mFrameCount / mPeriod);
+    }
+
+    public long getFrameTime(int frame) {
+        return ((long) frame * mPeriod + mFrameCount - 1) / mFrameCount;
+    }
+
+    public long getBytes() {
+        return (long) mFrameCount * mFrameSize * mFrameSize;
+    }
+
+    /**
+     * @return average time it took to draw one frame live while pre-rendering,
+     * 0 until the frames are rendered
+     */
+    public long getRenderNanosPerFrame() {
+        return mRenderNanos;
+    }
+
+    void setRenderNanosPerFrame(long renderNanos) {
+        mRenderNanos = renderNanos;
+    }
+
+    @Override
+    public String toString() {
+        if (!isPrerendered()) {
+            return "FlipbookPlan{live}";
+        }
+        return String.format(Locale.US, "FlipbookPlan{%d frames of %dx%d (1/%d), %d KB, live draw %.3f ms/frame}",
+                mFrameCount, mFrameSize, mFrameSize, mScale, getBytes() / 1024, mRenderNanos / 1e6);
+    }
+}
@@ -0,0 +1,253 @@
+package bis.radar;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free draw time histogram and frame counters of a radar, cheap enough to leave
+ * on in the field. Draw times fall into fixed buckets of 0.25 ms up to 16 ms, of 1 ms
+ * up to 64 ms and one bucket above that. Counts are kept per window, a window ends
+ * with {@link #reset()} or, with a {@link Listener}, after every report interval.
+ * <p>
+ * One instance may be shared by drawables on different threads: a missed vsync is
+ * counted once whatever the number of drawables advancing on it, and each window is
+ * reported once, with every count landing in exactly one window.
+ */
+public final class FrameStats {
+
+    public interface Listener {
+        /**
+         * Called on the drawing thread that ends a report interval, must be quick.
+         */
+        void onFrameStats(Snapshot snapshot);
+    }
+
+    private static final long FINE_BUCKET_NANOS = 250000L;
+    private static final long COARSE_BUCKET_NANOS = 1000000L;
+    private static final int FINE_BUCKETS = 64;
+    private static final int COARSE_BUCKETS = 48;
+    private static final long FINE_LIMIT_NANOS = FINE_BUCKETS * FINE_BUCKET_NANOS;
+    private static final long COARSE_LIMIT_NANOS = FINE_LIMIT_NANOS + COARSE_BUCKETS * COARSE_BUCKET_NANOS;
+    private static final int BUCKETS = FINE_BUCKETS + COARSE_BUCKETS + 1;
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong mMaxNanos = new AtomicLong();
+    private final AtomicLong mDraws = new AtomicLong();
+    private final AtomicLong mSkippedFrames = new AtomicLong();
+    private final AtomicLong mInvalidations = new AtomicLong();
+    private final AtomicLong mLastFrameNanos = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong mWindowStart = new AtomicLong();
+
+    private volatile Listener mListener;
+    private volatile long mReportNanos;
+
+    public FrameStats() {
+        mWindowStart.set(System.nanoTime());
+    }
+
+    /**
+     * @param listener     receives a snapshot and starts a new window every {@code reportMillis}
+     *                     of drawing, {@code null} to stop reporting
+     * @param reportMillis length of a report interval
+     */
+    public void setListener(Listener listener, long reportMillis) {
+        mReportNanos = reportMillis * 1000000L;
+        mListener = listener;
+    }
+
+    public void recordDraw(long startNanos, long endNanos) {
+        long nanos = endNanos - startNanos;
+        mBuckets.incrementAndGet(getBucket(nanos));
+        mDraws.incrementAndGet();
+        long max;
+        while (nanos > (max = mMaxNanos.get()) && !mMaxNanos.compareAndSet(max, nanos)) {
+            // Retry with the new maximum.
+        }
+
+        Listener listener = mListener;
+        long windowStart = mWindowStart.get();
+        // Only the thread that moves the window on reports it.
+        if (listener != null && endNanos - windowStart >= mReportNanos
+                && mWindowStart.compareAndSet(windowStart, endNanos)) {
+            listener.onFrameStats(drain(endNanos - windowStart));
+        }
+    }
+
+    /**
+     * Counts the vsyncs missed between two frame callbacks. Drawables sharing these stats
+     * advance on the same vsyncs, so only the first call for a frame time is counted.
+     *
+     * @param frameTimeNanos time of the frame callback
+     * @param intervalNanos  time since the previous frame callback of the drawable
+     * @param expectedNanos  time the frame callbacks are meant to be apart
+     */
+    public void recordFrame(long frameTimeNanos, long intervalNanos, long expectedNanos) {
+        long last;
+        do {
+            last = mLastFrameNanos.get();
+            if (frameTimeNanos <= last) {
+                return;
+            }
+        } while (!mLastFrameNanos.compareAndSet(last, frameTimeNanos));
+
+        long skipped = (intervalNanos + expectedNanos / 2) / expectedNanos - 1;
+        if (skipped > 0) {
+            mSkippedFrames.addAndGet(skipped);
+        }
+    }
+
+    public void recordInvalidation() {
+        mInvalidations.incrementAndGet();
+    }
+
+    public Snapshot snapshot() {
+        return snapshot(System.nanoTime());
+    }
+
+    public Snapshot snapshot(long nowNanos) {
+        long[] buckets = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = mBuckets.get(i);
+        }
+        return new Snapshot(buckets, mMaxNanos.get(), mDraws.get(), mSkippedFrames.get(),
+                mInvalidations.get(), nowNanos - mWindowStart.get());
+    }
+
+    public void reset() {
+        reset(System.nanoTime());
+    }
+
+    public void reset(long nowNanos) {
+        mWindowStart.set(nowNanos);
+        drain(0);
+    }
+
+    /**
+     * Moves every count out of the live counters. A count recorded meanwhile lands either in
+     * the returned snapshot or in the next window, it is never lost.
+     */
+    private Snapshot drain(long elapsedNanos) {
+        long[] buckets = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = mBuckets.getAndSet(i, 0);
+        }
+        return new Snapshot(buckets, mMaxNanos.getAndSet(0), mDraws.getAndSet(0), mSkippedFrames.getAndSet(0),
+                mInvalidations.getAndSet(0), elapsedNanos);
+    }
+
+    static int getBucket(long nanos) {
+        if (nanos < FINE_LIMIT_NANOS) {
+            return (int) (Math.max(0, nanos) / FINE_BUCKET_NANOS);
+        } else if (nanos < COARSE_LIMIT_NANOS) {
+            return FINE_BUCKETS + (int) ((nanos - FINE_LIMIT_NANOS) / COARSE_BUCKET_NANOS);
+        }
+        return BUCKETS - 1;
+    }
+
+    /**
+     * @return the upper bound of a bucket, {@link Long#MAX_VALUE} for the last one
+     */
+    static long getBucketLimit(int bucket) {
+        if (bucket < FINE_BUCKETS) {
+            return (bucket + 1) * FINE_BUCKET_NANOS;
+        } else if (bucket < BUCKETS - 1) {
+            return FINE_LIMIT_NANOS + (bucket - FINE_BUCKETS + 1) * COARSE_BUCKET_NANOS;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Counts of one window, copied out of the live counters.
+     */
+    public static final class Snapshot {
+
+        private final long[] mBuckets;
+        private final long mMaxNanos;
+        private final long mDraws;
+        private final long mSkippedFrames;
+        private final long mInvalidations;
+        private final long mElapsedNanos;
+
+        Snapshot(long[] buckets, long maxNanos, long draws, long skippedFrames, long invalidations, long elapsedNanos) {
+            mBuckets = buckets;
+            mMaxNanos = maxNanos;
+            mDraws = draws;
+            mSkippedFrames = skippedFrames;
+            mInvalidations = invalidations;
+            mElapsedNanos = elapsedNanos;
+        }
+
+        public long getDrawCount() {
+            return mDraws;
+        }
+
+        public long getSkippedFrameCount() {
+            return mSkippedFrames;
+        }
+
+        public long getInvalidationCount() {
+            return mInvalidations;
+        }
+
+        public long getElapsedNanos() {
+            return mElapsedNanos;
+        }
+
+        public float getDrawsPerSecond() {
+            return perSecond(mDraws);
+        }
+
+        public float getSkippedFramesPerSecond() {
+            return perSecond(mSkippedFrames);
+        }
+
+        public float getInvalidationsPerSecond() {
+            return perSecond(mInvalidations);
+        }
+
+        public long getMaxNanos() {
+            return mMaxNanos;
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return upper bound of the bucket the draw time at {@code percentile} falls in,
+         * at most the longest draw time, 0 without draws
+         */
+        public long getPercentileNanos(float percentile) {
+            long total = 0;
+            for (long count : mBuckets) {
+                total += count;
+            }
+            if (total == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < mBuckets.length; i++) {
+                seen += mBuckets[i];
+                if (seen >= rank) {
+                    return Math.min(getBucketLimit(i), mMaxNanos);
+                }
+            }
+            return mMaxNanos;
+        }
+
+        private float perSecond(long count) {
+            return mElapsedNanos > 0 ? count * (float) NANOS_PER_SECOND / mElapsedNanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "FrameStats{draws=%d, p50=%.2fms, p95=%.2fms, p99=%.2fms, max=%.2fms, skipped=%.1f/s, invalidations=%.1f/s}",
+                    mDraws, getPercentileNanos(50) / 1e6f, getPercentileNanos(95) / 1e6f,
+                    getPercentileNanos(99) / 1e6f, mMaxNanos / 1e6f,
+                    getSkippedFramesPerSecond(), getInvalidationsPerSecond());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package bis.radar;
+
+/**
+ * Encodes all the rings of a {@link RadarFrame} as the colour stops of a single
+ * radial gradient: the overlapping fills as stepped bands and every stroke as a
+ * narrow band with one pixel of anti-aliasing on each side.
+ */
+public final class GradientBands {
+
+    private static final float ANTI_ALIAS = 1;
+
+    private final int[] mOrder;
+    private final float[] mTransparency;
+    private final int[] mColors;
+    private final float[] mStops;
+    private int mCount;
+
+    public GradientBands(int ringCount) {
+        mOrder = new int[ringCount];
+        mTransparency = new float[ringCount + 1];
+        mColors = new int[ringCount * 4 + 2];
+        mStops = new float[ringCount * 4 + 2];
+    }
+
+    /**
+     * @return radius of the gradient that contains every ring of a drawable with
+     * the given max radius
+     */
+    public static float getOuterRadius(float maxRadius, float strokeWidth) {
+        return maxRadius + strokeWidth / 2 + ANTI_ALIAS;
+    }
+
+    public void update(RadarFrame frame, float outerRadius) {
+        RadarModel model = frame.getModel();
+        int rgb = model.getColor() & 0x00FFFFFF;
+        float halfStroke = model.getStrokeWidth() / 2;
+        int rings = frame.getCount();
+
+        // Insertion sort by radius, rings are few and nearly ordered.
+        for (int i = 0; i < rings; i++) {
+            int j = i;
+            while (j > 0 && frame.getRadius(mOrder[j - 1]) > frame.getRadius(i)) {
+                mOrder[j] = mOrder[j - 1];
+                j--;
+            }
+            mOrder[j] = i;
+        }
+
+        // Fills of the same colour stack, what shows through at a radius is the
+        // product of the transparencies of every ring at least that large.
+        mTransparency[rings] = 1;
+        for (int i = rings - 1; i >= 0; i--) {
+            mTransparency[i] = mTransparency[i + 1] * (1 - frame.getFillAlpha(mOrder[i]) / 255f);
+        }
+
+        mCount = 0;
+        add(0, rgb, mTransparency[0]);
+        for (int i = 0; i < rings; i++) {
+            int ring = mOrder[i];
+            float radius = frame.getRadius(ring);
+            float stroke = mTransparency[i] * (1 - frame.getStrokeAlpha(ring) / 255f);
+            add((radius - halfStroke - ANTI_ALIAS) / outerRadius, rgb, mTransparency[i]);
+            add((radius - halfStroke) / outerRadius, rgb, stroke);
+            add((radius + halfStroke) / outerRadius, rgb, stroke);
+            add((radius + halfStroke + ANTI_ALIAS) / outerRadius, rgb, mTransparency[i + 1]);
+        }
+        add(1, rgb, 1);
+    }
+
+    private void add(float stop, int rgb, float transparency) {
+        float min = mCount == 0 ? 0 : mStops[mCount - 1];
+        mStops[mCount] = Math.min(1, Math.max(min, stop));
+        mColors[mCount] = ((int) ((1 - transparency) * 255 + 0.5f) << 24) | rgb;
+        mCount++;
+    }
+
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * @return colours of the gradient, only the first {@link #getCount()} are valid
+     */
+    public int[] getColors() {
+        return mColors;
+    }
+
+    /**
+     * @return positions of the colours, only the first {@link #getCount()} are valid
+     */
+    public float[] getStops() {
+        return mStops;
+    }
+}
@@ -0,0 +1,109 @@
+package bis.radar;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Eased animation fractions sampled once per display frame over one loop of
+ * the animation, so the per-frame path is a primitive array lookup instead of
+ * an interpolator call and boxed animated values.
+ */
+public final class InterpolationTable {
+
+    private static final List<InterpolationTable> sTables = new ArrayList<>();
+
+    private final int mDuration;
+    private final float mRefreshRate;
+    private final RadarModel.Easing mEasing;
+    private final float mFramesPerMilli;
+    private final float[] mFractions;
+    private final int[][] mAlphaTables = new int[256][];
+
+    private InterpolationTable(int duration, float refreshRate, RadarModel.Easing easing) {
+        mDuration = duration;
+        mRefreshRate = refreshRate;
+        mEasing = easing;
+
+        int frameCount = Math.max(1, Math.round(duration * refreshRate / 1000));
+        mFramesPerMilli = frameCount / (float) duration;
+        mFractions = new float[frameCount + 1];
+        for (int i = 0; i <= frameCount; i++) {
+            mFractions[i] = easing.ease(i / (float) frameCount);
+        }
+    }
+
+    public static InterpolationTable obtain(int duration, float refreshRate, RadarModel.Easing easing) {
+        if (duration <= 0) {
+            throw new IllegalArgumentException("duration must be positive: " + duration);
+        }
+        if (refreshRate <= 0) {
+            throw new IllegalArgumentException("refreshRate must be positive: " + refreshRate);
+        }
+
+        synchronized (sTables) {
+            for (int i = 0; i < sTables.size(); i++) {
+                InterpolationTable table = sTables.get(i);
+                if (table.mDuration == duration && table.mRefreshRate == refreshRate && table.mEasing == easing) {
+                    return table;
+                }
+            }
+
+            InterpolationTable table = new InterpolationTable(duration, refreshRate, easing);
+            sTables.add(table);
+            return table;
+        }
+    }
+
+    public int getDuration() {
+        return mDuration;
+    }
+
+    public float getRefreshRate() {
+        return mRefreshRate;
+    }
+
+    public RadarModel.Easing getEasing() {
+        return mEasing;
+    }
+
+    public int getFrameCount() {
+        return mFractions.length - 1;
+    }
+
+    /**
+     * @return index of the sampled frame nearest to {@code time} within the loop,
+     * usable with the tables returned by {@link #getAlphaTable(int)}.
+     */
+    public int getFrame(long time) {
+        return (int) (time % mDuration * mFramesPerMilli + 0.5f);
+    }
+
+    /**
+     * @return eased fraction at {@code time} within the loop, linearly
+     * interpolated between the two neighbouring samples.
+     */
+    public float getFraction(long time) {
+        float position = time % mDuration * mFramesPerMilli;
+        int index = (int) position;
+        float from = mFractions[index];
+        return from + (mFractions[index + 1] - from) * (position - index);
+    }
+
+    /**
+     * @return alpha fading from {@code startAlpha} to 0 for every sampled frame, created
+     * once per start alpha and shared by every caller, which must not modify it.
+     */
+    public int[] getAlphaTable(int startAlpha) {
+        synchronized (mAlphaTables) {
+            int[] alphas = mAlphaTables[startAlpha];
+            if (alphas == null) {
+                alphas = new int[mFractions.length];
+                for (int i = 0; i < alphas.length; i++) {
+                    alphas[i] = (int) (startAlpha - mFractions[i] * startAlpha);
+                }
+                mAlphaTables[startAlpha] = alphas;
+            }
+            return alphas;
+        }
+    }
+}
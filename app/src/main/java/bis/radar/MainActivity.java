@@ -1,16 +1,27 @@
 package bis.radar;
 
+import android.annotation.TargetApi;
+import android.content.BroadcastReceiver;
+import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
 import android.os.PersistableBundle;
+import android.os.PowerManager;
 import android.support.design.widget.Snackbar;
-import android.support.v4.content.ContextCompat;
 import android.support.v7.app.AppCompatActivity;
+import android.util.Log;
+import android.view.Choreographer;
 import android.view.View;
 import android.view.View.OnClickListener;
+import android.view.ViewTreeObserver;
 import android.widget.Button;
-import android.widget.ImageView;
 
 import com.facebook.AccessToken;
 import com.facebook.AccessTokenTracker;
@@ -23,45 +34,184 @@ import com.facebook.ProfileTracker;
 import com.facebook.appevents.AppEventsLogger;
 import com.facebook.login.LoginManager;
 import com.facebook.login.LoginResult;
-import com.squareup.picasso.Callback;
 import com.squareup.picasso.Picasso;
+import com.squareup.picasso.Target;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import de.hdodenhof.circleimageview.AvatarCache;
 import de.hdodenhof.circleimageview.CircleImageView;
 
 public class MainActivity extends AppCompatActivity {
 
+    private static final String TAG = "MainActivity";
+
+    private static final long PHOTO_CACHE_SIZE = 2 * 1024 * 1024;
+
+    private static final String PREFERENCES = "startup";
+    private static final String KEY_SIGNED_IN = "signed_in";
+    private static final String KEY_PROFILE_ID = "profile_id";
+
+    private static final String PHASE_CONTENT_VIEW = "content view";
+    private static final String PHASE_CACHED_STATE = "cached state";
+    private static final String PHASE_SDK_INITIALIZED = "sdk initialized";
+    private static final String PHASE_UI_WIRED = "ui wired";
+    private static final String PHASE_FIRST_FRAME = "first frame";
+
+    /**
+     * Initializes the SDK off the UI thread; tests replace it to initialize it in place.
+     */
+    static Executor sStartupExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            return new Thread(r, "Startup");
+        }
+    });
+
     private CallbackManager mCallbackManager;
     private CircleImageView mProfilePicture;
-    private ImageView mRadarImage;
+    private RadarView mRadarView;
     private Button mSignIn;
     private Button mSignOut;
+    private Target mProfileTarget;
+    private Uri mProfileUri;
+    private boolean mProfileLoaded;
+    private int mPhotoSize;
+    private ProfilePhotoCache mPhotoCache;
+    private RadarDrawable mRadarDrawable;
+    private boolean mUpdatePending;
+    private SharedPreferences mPreferences;
+    private AccessTokenTracker mAccessTokenTracker;
+    private ProfileTracker mProfileTracker;
+    private boolean mSdkReady;
+    private boolean mResumed;
+    private boolean mDestroyed;
+    private StartupTrace mTrace;
+
+    private final BroadcastReceiver mPowerSaveReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            updatePowerSaveMode();
+        }
+    };
+
+    private final Choreographer.FrameCallback mUpdateCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mUpdatePending = false;
+            updateUI();
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        mTrace = new StartupTrace();
         setContentView(R.layout.activity_main);
+        mTrace.mark(PHASE_CONTENT_VIEW);
+
+        getWindow().getDecorView().getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                getWindow().getDecorView().getViewTreeObserver().removeOnPreDrawListener(this);
+                mTrace.mark(PHASE_FIRST_FRAME);
+                logTrace();
+                return true;
+            }
+        });
+
+        mPhotoSize = getResources().getDimensionPixelSize(R.dimen.profile_size);
+        mPhotoCache = new ProfilePhotoCache(this, PHOTO_CACHE_SIZE);
+        mPreferences = getSharedPreferences(PREFERENCES, MODE_PRIVATE);
+
+        mProfilePicture = (CircleImageView) findViewById(R.id.profile_picture);
+        mRadarView = (RadarView) findViewById(R.id.radar);
+        mRadarDrawable = new RadarDrawable();
+        mRadarDrawable.setRefreshRate(getWindowManager().getDefaultDisplay().getRefreshRate());
+        mRadarDrawable.setAdaptiveQuality(true);
+        mSignIn = (Button) findViewById(R.id.sign_in);
+        mSignOut = (Button) findViewById(R.id.sign_out);
+
+        showCachedState();
+        mTrace.mark(PHASE_CACHED_STATE);
 
-        FacebookSdk.sdkInitialize(getApplicationContext());
+        if (FacebookSdk.isInitialized()) {
+            onSdkInitialized();
+            return;
+        }
+
+        // Nothing that needs the SDK is touched until it is initialized.
+        final Context context = getApplicationContext();
+        final Handler handler = new Handler();
+        sStartupExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                FacebookSdk.sdkInitialize(context);
+                mTrace.mark(PHASE_SDK_INITIALIZED);
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!mDestroyed) {
+                            onSdkInitialized();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Shows the signed in state of the last launch before the SDK knows the current one.
+     */
+    private void showCachedState() {
+        boolean signedIn = mPreferences.getBoolean(KEY_SIGNED_IN, false);
+        mSignIn.setVisibility(signedIn ? View.GONE : View.VISIBLE);
+        mSignOut.setVisibility(signedIn ? View.VISIBLE : View.GONE);
+        mSignIn.setEnabled(false);
+        mSignOut.setEnabled(false);
+
+        String profileId = mPreferences.getString(KEY_PROFILE_ID, null);
+        if (signedIn && profileId != null) {
+            final String key = getPhotoKey(profileId);
+            mPhotoCache.get(key, new ProfilePhotoCache.Callback() {
+                @Override
+                public void onPhotoLoaded(Bitmap bitmap) {
+                    if (mDestroyed) {
+                        return;
+                    }
+                    // The SDK may already have loaded the current photo, or found the user signed out.
+                    if (bitmap != null && !mProfileLoaded && (!mSdkReady || isFacebookSignedIn())) {
+                        showProfilePhoto(key, bitmap);
+                    }
+                }
+            });
+        }
+    }
+
+    private void onSdkInitialized() {
+        mSdkReady = true;
         mCallbackManager = CallbackManager.Factory.create();
 
-        new AccessTokenTracker() {
+        mAccessTokenTracker = new AccessTokenTracker() {
             @Override
             protected void onCurrentAccessTokenChanged(AccessToken oldAccessToken, AccessToken currentAccessToken) {
-                updateUI();
+                scheduleUpdateUI();
             }
         };
 
-        new ProfileTracker() {
+        mProfileTracker = new ProfileTracker() {
             @Override
             protected void onCurrentProfileChanged(Profile oldProfile, Profile currentProfile) {
-                updateUI();
+                // Start on the photo right away, it does not need the layout.
+                if (currentProfile != null && isFacebookSignedIn()) {
+                    loadProfilePhoto();
+                }
+                scheduleUpdateUI();
             }
         };
 
-        mProfilePicture = (CircleImageView) findViewById(R.id.profile_picture);
-        mRadarImage = (ImageView) findViewById(R.id.radar);
-
-        mSignIn = (Button) findViewById(R.id.sign_in);
         mSignIn.setOnClickListener(new OnClickListener() {
             @Override
             public void onClick(final View v) {
@@ -71,7 +221,7 @@ public class MainActivity extends AppCompatActivity {
                         if (BuildConfig.DEBUG) {
                             Snackbar.make(v, "Success", Snackbar.LENGTH_SHORT).show();
                         }
-                        updateUI();
+                        scheduleUpdateUI();
                     }
 
                     @Override
@@ -79,73 +229,142 @@ public class MainActivity extends AppCompatActivity {
                         if (BuildConfig.DEBUG) {
                             Snackbar.make(v, "Cancel", Snackbar.LENGTH_SHORT).show();
                         }
-                        updateUI();
+                        scheduleUpdateUI();
                     }
 
                     @Override
                     public void onError(FacebookException error) {
                         Snackbar.make(v, error.getLocalizedMessage(), Snackbar.LENGTH_SHORT).show();
-                        updateUI();
+                        scheduleUpdateUI();
                     }
                 });
                 LoginManager.getInstance().logInWithReadPermissions(MainActivity.this, null);
             }
         });
 
-        mSignOut = (Button) findViewById(R.id.sign_out);
         mSignOut.setOnClickListener(new OnClickListener() {
             @Override
             public void onClick(View v) {
                 LoginManager.getInstance().logOut();
-                updateUI();
+                mPhotoCache.clear();
+                scheduleUpdateUI();
             }
         });
 
-        updateUI();
+        mSignIn.setEnabled(true);
+        mSignOut.setEnabled(true);
+        if (mResumed) {
+            AppEventsLogger.activateApp(this);
+        }
+
+        scheduleUpdateUI();
+        mTrace.mark(PHASE_UI_WIRED);
+        logTrace();
+    }
+
+    private void logTrace() {
+        if (BuildConfig.DEBUG && mTrace.hasPhase(PHASE_FIRST_FRAME) && mTrace.hasPhase(PHASE_UI_WIRED)) {
+            Log.d(TAG, mTrace.toString());
+        }
     }
 
     @Override
     public void onPostCreate(Bundle savedInstanceState, PersistableBundle persistentState) {
         super.onPostCreate(savedInstanceState, persistentState);
-        updateUI();
+        scheduleUpdateUI();
     }
 
     @Override
     protected void onResume() {
         super.onResume();
-        AppEventsLogger.activateApp(this);
+        mResumed = true;
+        if (mSdkReady) {
+            AppEventsLogger.activateApp(this);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            registerReceiver(mPowerSaveReceiver, new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+            updatePowerSaveMode();
+        }
+        mRadarDrawable.setVisible(true, false);
     }
 
     @Override
     protected void onPause() {
         super.onPause();
-        AppEventsLogger.deactivateApp(this);
+        mResumed = false;
+        if (mSdkReady) {
+            AppEventsLogger.deactivateApp(this);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            unregisterReceiver(mPowerSaveReceiver);
+        }
+        mRadarDrawable.setVisible(false, false);
+    }
+
+    /**
+     * Drops the fill pass and anti-aliasing of the radar while the device saves power.
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private void updatePowerSaveMode() {
+        PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
+        mRadarDrawable.setQualityFloor(powerManager.isPowerSaveMode()
+                ? QualityGovernor.QUALITY_NO_ANTI_ALIAS : QualityGovernor.QUALITY_FULL);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mDestroyed = true;
+        if (mSdkReady) {
+            mAccessTokenTracker.stopTracking();
+            mProfileTracker.stopTracking();
+        }
+        Choreographer.getInstance().removeFrameCallback(mUpdateCallback);
+        mRadarDrawable.stop();
+        if (mProfileTarget != null) {
+            Picasso.with(this).cancelRequest(mProfileTarget);
+            mProfileTarget = null;
+        }
     }
 
     @Override
     protected void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
-        mCallbackManager.onActivityResult(requestCode, resultCode, data);
+        if (mCallbackManager != null) {
+            mCallbackManager.onActivityResult(requestCode, resultCode, data);
+        }
+    }
+
+    /**
+     * Folds all UI updates requested during a frame into a single {@link #updateUI()} pass.
+     */
+    private void scheduleUpdateUI() {
+        if (!mUpdatePending) {
+            mUpdatePending = true;
+            Choreographer.getInstance().postFrameCallback(mUpdateCallback);
+        }
     }
 
     private void updateUI() {
-        if (isFacebookSignedIn()) {
+        if (!mSdkReady) {
+            return;
+        }
+
+        boolean signedIn = isFacebookSignedIn();
+        Profile profile = Profile.getCurrentProfile();
+        mPreferences.edit()
+                .putBoolean(KEY_SIGNED_IN, signedIn)
+                .putString(KEY_PROFILE_ID, signedIn && profile != null ? profile.getId() : null)
+                .apply();
+
+        if (signedIn) {
             mSignIn.setVisibility(View.GONE);
             mSignOut.setVisibility(View.VISIBLE);
-            mProfilePicture.post(new Runnable() {
-                @Override
-                public void run() {
-                    loadProfilePhoto();
-                }
-            });
+            loadProfilePhoto();
         } else {
             mSignIn.setVisibility(View.VISIBLE);
             mSignOut.setVisibility(View.GONE);
-            mProfilePicture.setImageResource(R.drawable.com_facebook_profile_picture_blank_portrait);
-            if (mRadarImage.getDrawable() instanceof RadarDrawable) {
-                ((RadarDrawable) mRadarImage.getDrawable()).stop();
-            }
-            mRadarImage.setImageDrawable(ContextCompat.getDrawable(this, android.R.color.transparent));
+            clearProfilePhoto();
         }
     }
 
@@ -156,24 +375,97 @@ public class MainActivity extends AppCompatActivity {
     private void loadProfilePhoto() {
         Profile profile = Profile.getCurrentProfile();
         if (profile != null) {
-            Uri uri = profile.getProfilePictureUri(mProfilePicture.getWidth(), mProfilePicture.getHeight());
-            Picasso.with(this).load(uri)
-                    .placeholder(R.drawable.com_facebook_profile_picture_blank_portrait)
-                    .into(mProfilePicture, new Callback() {
-                        @Override
-                        public void onSuccess() {
-                            RadarDrawable radarDrawable = new RadarDrawable();
-                            radarDrawable.setMinRadius(Math.min(mProfilePicture.getWidth(), mProfilePicture.getHeight()) / 2);
-                            radarDrawable.start();
-                            mRadarImage.setImageDrawable(radarDrawable);
-                        }
+            final Uri uri = profile.getProfilePictureUri(mPhotoSize, mPhotoSize);
+            if (uri.equals(mProfileUri)) {
+                // Loading or already shown.
+                return;
+            }
 
-                        @Override
-                        public void onError() {
-                        }
-                    });
+            if (mProfileTarget != null) {
+                Picasso.with(this).cancelRequest(mProfileTarget);
+                mProfileTarget = null;
+            }
+            mProfileUri = uri;
+
+            final String key = getPhotoKey(profile.getId());
+            mPhotoCache.get(key, new ProfilePhotoCache.Callback() {
+                @Override
+                public void onPhotoLoaded(Bitmap bitmap) {
+                    if (mDestroyed || !uri.equals(mProfileUri)) {
+                        return;
+                    }
+                    if (bitmap != null) {
+                        showProfilePhoto(key, bitmap);
+                    }
+                    // The picture URI does not change with the picture, so the cached copy is only
+                    // shown until Picasso has revalidated it; a changed photo replaces it.
+                    downloadProfilePhoto(uri, key);
+                }
+            });
         } else {
             mProfilePicture.setImageResource(R.drawable.com_facebook_profile_picture_blank_portrait);
         }
     }
+
+    private void downloadProfilePhoto(final Uri uri, final String key) {
+        // Picasso holds targets weakly.
+        mProfileTarget = new Target() {
+            @Override
+            public void onBitmapLoaded(Bitmap bitmap, Picasso.LoadedFrom from) {
+                mPhotoCache.put(key, bitmap);
+                // The photo behind the key may have changed since the cached copy was cut.
+                AvatarCache.getInstance().remove(key);
+                showProfilePhoto(key, bitmap);
+            }
+
+            @Override
+            public void onBitmapFailed(Drawable errorDrawable) {
+                // Let the next update try again.
+                mProfileUri = null;
+            }
+
+            @Override
+            public void onPrepareLoad(Drawable placeHolderDrawable) {
+                if (!mProfileLoaded) {
+                    mProfilePicture.setImageDrawable(placeHolderDrawable);
+                }
+            }
+        };
+        Picasso.with(this).load(uri)
+                .resize(mPhotoSize, mPhotoSize)
+                .centerCrop()
+                .placeholder(R.drawable.com_facebook_profile_picture_blank_portrait)
+                .into(mProfileTarget);
+    }
+
+    private String getPhotoKey(String profileId) {
+        return profileId + "_" + mPhotoSize;
+    }
+
+    private void showProfilePhoto(String key, Bitmap bitmap) {
+        mProfileLoaded = true;
+        mProfilePicture.setImageAvatar(key, bitmap);
+        showRadar();
+    }
+
+    private void showRadar() {
+        mRadarDrawable.setMinRadius(mPhotoSize / 2);
+        mRadarView.setRadar(mRadarDrawable);
+        if (!mRadarDrawable.isRunning()) {
+            mRadarDrawable.start();
+        }
+    }
+
+    private void clearProfilePhoto() {
+        if (mProfileTarget != null) {
+            Picasso.with(this).cancelRequest(mProfileTarget);
+            mProfileTarget = null;
+        }
+        mProfileUri = null;
+        mProfileLoaded = false;
+
+        mProfilePicture.setImageResource(R.drawable.com_facebook_profile_picture_blank_portrait);
+        mRadarDrawable.stop();
+        mRadarView.setRadar(null);
+    }
 }
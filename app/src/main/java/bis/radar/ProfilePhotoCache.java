@@ -0,0 +1,161 @@
+package bis.radar;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Profile photos, already decoded at the size they are shown at, kept on disk so that
+ * they can be shown on the next launch before the network answers. The least recently
+ * used photos are deleted once the cache grows over its size. Files are read and written
+ * in the background, callbacks are called on the calling thread.
+ */
+class ProfilePhotoCache {
+
+    private static final String TAG = "ProfilePhotoCache";
+    private static final int JPEG_QUALITY = 90;
+
+    public interface Callback {
+        /**
+         * @param bitmap the cached photo, or {@code null} if there is none
+         */
+        void onPhotoLoaded(Bitmap bitmap);
+    }
+
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    r.run();
+                }
+            }, "ProfilePhotoCache");
+        }
+    });
+
+    private final File mDirectory;
+    private final long mMaxBytes;
+
+    public ProfilePhotoCache(Context context, long maxBytes) {
+        mDirectory = new File(context.getCacheDir(), "profile_photos");
+        mMaxBytes = maxBytes;
+    }
+
+    public void get(final String key, final Callback callback) {
+        final Handler handler = new Handler();
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                File file = getFile(key);
+                final Bitmap bitmap = file.exists() ? BitmapFactory.decodeFile(file.getPath()) : null;
+                if (bitmap != null) {
+                    file.setLastModified(System.currentTimeMillis());
+                }
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onPhotoLoaded(bitmap);
+                    }
+                });
+            }
+        });
+    }
+
+    public void put(final String key, final Bitmap bitmap) {
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+                    Log.w(TAG, "Cannot create " + mDirectory);
+                    return;
+                }
+
+                File file = getFile(key);
+                File temp = new File(mDirectory, file.getName() + ".tmp");
+                OutputStream out = null;
+                try {
+                    out = new FileOutputStream(temp);
+                    bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+                    out.close();
+                    out = null;
+                    if (!temp.renameTo(file)) {
+                        throw new IOException("Cannot rename " + temp + " to " + file);
+                    }
+                } catch (IOException e) {
+                    Log.w(TAG, "Cannot write " + file, e);
+                    temp.delete();
+                } finally {
+                    if (out != null) {
+                        try {
+                            out.close();
+                        } catch (IOException ignored) {
+                        }
+                    }
+                }
+
+                trim();
+            }
+        });
+    }
+
+    public void clear() {
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                File[] files = mDirectory.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        file.delete();
+                    }
+                }
+            }
+        });
+    }
+
+    private void trim() {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        if (size <= mMaxBytes) {
+            return;
+        }
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                long l = lhs.lastModified();
+                long r = rhs.lastModified();
+                return l < r ? -1 : (l == r ? 0 : 1);
+            }
+        });
+        for (int i = 0; i < files.length && size > mMaxBytes; i++) {
+            size -= files[i].length();
+            files[i].delete();
+        }
+    }
+
+    private File getFile(String key) {
+        return new File(mDirectory, key.replaceAll("[^A-Za-z0-9_-]", "_") + ".jpg");
+    }
+}
@@ -0,0 +1,97 @@
+package bis.radar;
+
+/**
+ * Picks the drawing quality of a radar from the intervals between its frames:
+ * steps down after a sustained run of missed vsyncs, and back up after a long
+ * enough run of frames on time. Under hardware acceleration draw() only records
+ * a display list, so its duration says little about the cost of a frame; a late
+ * frame does. A step up that soon brings the jank back doubles the wait before
+ * the next one.
+ */
+public final class QualityGovernor {
+
+    public static final int QUALITY_FULL = 0;
+    public static final int QUALITY_NO_FILL = 1;
+    public static final int QUALITY_NO_ANTI_ALIAS = 2;
+    public static final int QUALITY_HALF_RINGS = 3;
+
+    private static final int STEP_DOWN_FRAMES = 30;
+    private static final int STEP_UP_FRAMES = 180;
+    private static final int MAX_STEP_UP_FRAMES = 8 * STEP_UP_FRAMES;
+    private static final float SMOOTHING = 0.1f;
+    private static final float SLOW_INTERVAL = 1.2f;
+    private static final float ON_TIME_INTERVAL = 1.05f;
+
+    private int mQuality = QUALITY_FULL;
+    private int mFloor = QUALITY_FULL;
+    private float mAverageInterval;
+    private int mSlowFrames;
+    private int mFastFrames;
+    private int mStepUpFrames = STEP_UP_FRAMES;
+    private int mFramesSinceStepUp = -1;
+
+    public int getQuality() {
+        return mQuality;
+    }
+
+    /**
+     * Keeps the quality at {@code floor} or below whatever the frame intervals, for
+     * example while the device reports thermal pressure or power saving.
+     */
+    public void setFloor(int floor) {
+        mFloor = Math.max(QUALITY_FULL, Math.min(QUALITY_HALF_RINGS, floor));
+        if (mQuality < mFloor) {
+            mQuality = mFloor;
+        }
+    }
+
+    /**
+     * @return smoothed interval between frames, in expected frame intervals
+     */
+    public float getAverageInterval() {
+        return mAverageInterval;
+    }
+
+    /**
+     * @param intervalNanos time since the previous frame
+     * @param expectedNanos time between two frames when none is missed
+     * @return {@code true} if the quality changed
+     */
+    public boolean onFrame(long intervalNanos, long expectedNanos) {
+        float interval = intervalNanos / (float) expectedNanos;
+        mAverageInterval = mAverageInterval == 0 ? interval : mAverageInterval + (interval - mAverageInterval) * SMOOTHING;
+        if (mFramesSinceStepUp >= 0) {
+            mFramesSinceStepUp++;
+        }
+
+        if (mAverageInterval > SLOW_INTERVAL) {
+            mFastFrames = 0;
+            if (++mSlowFrames >= STEP_DOWN_FRAMES && mQuality < QUALITY_HALF_RINGS) {
+                if (mFramesSinceStepUp >= 0 && mFramesSinceStepUp < mStepUpFrames) {
+                    mStepUpFrames = Math.min(MAX_STEP_UP_FRAMES, 2 * mStepUpFrames);
+                }
+                mFramesSinceStepUp = -1;
+                return setQuality(mQuality + 1);
+            }
+        } else if (mAverageInterval < ON_TIME_INTERVAL) {
+            mSlowFrames = 0;
+            if (++mFastFrames >= mStepUpFrames && mQuality > mFloor) {
+                mFramesSinceStepUp = 0;
+                return setQuality(mQuality - 1);
+            }
+        } else {
+            mSlowFrames = 0;
+            mFastFrames = 0;
+        }
+        return false;
+    }
+
+    private boolean setQuality(int quality) {
+        mQuality = quality;
+        mSlowFrames = 0;
+        mFastFrames = 0;
+        // Measurements taken at the previous quality no longer apply.
+        mAverageInterval = 0;
+        return true;
+    }
+}
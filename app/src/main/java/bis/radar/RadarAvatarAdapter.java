@@ -0,0 +1,202 @@
+package bis.radar;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.WindowManager;
+
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.Target;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.hdodenhof.circleimageview.CircleImageView;
+
+/**
+ * List of avatars with a radar pulsing behind each, like the profile picture of
+ * {@link MainActivity}. Radars come from a {@link RadarDrawablePool}, advance on the
+ * shared {@link RadarPulse} and only animate while their row is attached. A row that
+ * scrolls back into view resumes its pulse where it left it.
+ */
+public class RadarAvatarAdapter extends RecyclerView.Adapter<RadarAvatarAdapter.ViewHolder> {
+
+    private static final int POOL_SIZE = 16;
+
+    public static final class Avatar {
+
+        private final long mId;
+        private final Uri mPhotoUri;
+
+        public Avatar(long id, Uri photoUri) {
+            mId = id;
+            mPhotoUri = photoUri;
+        }
+
+        public long getId() {
+            return mId;
+        }
+
+        public Uri getPhotoUri() {
+            return mPhotoUri;
+        }
+    }
+
+    private final List<Avatar> mAvatars = new ArrayList<>();
+    private final RadarDrawablePool mPool;
+    private final Picasso mPicasso;
+    private final int mPhotoSize;
+
+    private final RecyclerView.OnScrollListener mScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+            // Decoding while flinging costs frames, rows flying past are not worth it.
+            if (newState == RecyclerView.SCROLL_STATE_SETTLING) {
+                mPicasso.pauseTag(RadarAvatarAdapter.this);
+            } else {
+                mPicasso.resumeTag(RadarAvatarAdapter.this);
+            }
+        }
+    };
+
+    public RadarAvatarAdapter(Context context) {
+        this(context, RadarModel.getDefault());
+    }
+
+    public RadarAvatarAdapter(Context context, RadarModel model) {
+        mPool = new RadarDrawablePool(model, POOL_SIZE);
+        WindowManager windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        mPool.setRefreshRate(windowManager.getDefaultDisplay().getRefreshRate());
+        mPicasso = Picasso.with(context);
+        mPhotoSize = context.getResources().getDimensionPixelSize(R.dimen.radar_item_avatar_size);
+        setHasStableIds(true);
+    }
+
+    public void setAvatars(List<Avatar> avatars) {
+        mAvatars.clear();
+        mAvatars.addAll(avatars);
+        notifyDataSetChanged();
+    }
+
+    /**
+     * @return listener to add to the {@link RecyclerView} showing this adapter, pauses photo loads during flings
+     */
+    public RecyclerView.OnScrollListener getScrollListener() {
+        return mScrollListener;
+    }
+
+    @Override
+    public int getItemCount() {
+        return mAvatars.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return mAvatars.get(position).getId();
+    }
+
+    @Override
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_radar_avatar, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(ViewHolder holder, int position) {
+        holder.bind(mAvatars.get(position));
+    }
+
+    @Override
+    public void onViewAttachedToWindow(ViewHolder holder) {
+        if (holder.mRadar != null) {
+            holder.mRadar.setVisible(true, false);
+        }
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(ViewHolder holder) {
+        // Suspended rather than stopped, start() would replay the warm-up.
+        if (holder.mRadar != null) {
+            holder.mRadar.setVisible(false, false);
+        }
+    }
+
+    @Override
+    public void onViewRecycled(ViewHolder holder) {
+        holder.unbind();
+    }
+
+    @Override
+    public boolean onFailedToRecycleView(ViewHolder holder) {
+        holder.unbind();
+        return true;
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        mPicasso.resumeTag(this);
+        mPool.clear();
+    }
+
+    public class ViewHolder extends RecyclerView.ViewHolder implements Target {
+
+        private final RadarView mRadarView;
+        private final CircleImageView mProfilePicture;
+        private RadarDrawable mRadar;
+        private String mPhotoKey;
+
+        ViewHolder(View view) {
+            super(view);
+            mRadarView = (RadarView) view.findViewById(R.id.radar);
+            mProfilePicture = (CircleImageView) view.findViewById(R.id.profile_picture);
+        }
+
+        void bind(Avatar avatar) {
+            if (mRadar == null) {
+                mRadar = mPool.acquire();
+                mRadar.setMinRadius(mPhotoSize / 2);
+                mRadarView.setRadar(mRadar);
+                mRadar.start();
+            }
+
+            mPhotoKey = avatar.getId() + "_" + mPhotoSize;
+            mPicasso.load(avatar.getPhotoUri())
+                    .resize(mPhotoSize, mPhotoSize)
+                    .centerCrop()
+                    .placeholder(R.drawable.com_facebook_profile_picture_blank_portrait)
+                    .tag(RadarAvatarAdapter.this)
+                    .into(this);
+        }
+
+        void unbind() {
+            mPicasso.cancelRequest(this);
+            mPhotoKey = null;
+            if (mRadar != null) {
+                mRadarView.setRadar(null);
+                mPool.release(mRadar);
+                mRadar = null;
+            }
+        }
+
+        @Override
+        public void onBitmapLoaded(Bitmap bitmap, Picasso.LoadedFrom from) {
+            if (mPhotoKey != null) {
+                mProfilePicture.setImageAvatar(mPhotoKey, bitmap);
+            }
+        }
+
+        @Override
+        public void onBitmapFailed(Drawable errorDrawable) {
+        }
+
+        @Override
+        public void onPrepareLoad(Drawable placeHolderDrawable) {
+            mProfilePicture.setImageDrawable(placeHolderDrawable);
+        }
+    }
+}
@@ -1,63 +1,485 @@
 package bis.radar;
 
-import android.animation.Animator;
-import android.animation.AnimatorSet;
-import android.animation.PropertyValuesHolder;
-import android.animation.ValueAnimator;
-import android.animation.ValueAnimator.AnimatorUpdateListener;
 import android.graphics.Canvas;
-import android.graphics.Color;
 import android.graphics.ColorFilter;
 import android.graphics.Paint;
 import android.graphics.Paint.Style;
 import android.graphics.Rect;
+import android.graphics.RectF;
 import android.graphics.drawable.Animatable;
 import android.graphics.drawable.Drawable;
+import android.view.Choreographer;
+import android.view.Choreographer.FrameCallback;
 
-import java.util.ArrayList;
-import java.util.List;
+public class RadarDrawable extends Drawable implements Animatable, FrameCallback {
 
-public class RadarDrawable extends Drawable implements Animatable {
+    /**
+     * Every ring is drawn as an anti-aliased filled circle and a stroked circle.
+     */
+    public static final int RENDER_MODE_CIRCLES = 0;
 
-    private static final int DURATION = 3000;
+    /**
+     * All the rings are drawn at once as a single circle painted with a cached radial
+     * gradient, so the cost of a frame does not depend on the ring count.
+     */
+    public static final int RENDER_MODE_GRADIENT = 1;
+
+    /**
+     * Rings are blitted from alpha mask sprites rendered once per radius bucket and
+     * scaled to the ring radius, which saves the anti-aliased circle raster on software
+     * and older GPU pipelines. Fewer buckets are used when the sprites do not fit the
+     * sprite cache size, and rings are drawn as circles, with a warning in the log,
+     * when not even a few buckets fit.
+     */
+    public static final int RENDER_MODE_SPRITES = 2;
+
+    /**
+     * One period of the animation is rendered into frames in the background and then
+     * only played back; rings are drawn live until the frames are ready or when the
+     * memory budget cannot hold enough frames.
+     */
+    public static final int RENDER_MODE_FLIPBOOK = 3;
+
+    private static final float DEFAULT_REFRESH_RATE = 60;
+    private static final int DEFAULT_SPRITE_CACHE_SIZE = 4 * 1024 * 1024;
+    private static final int DEFAULT_FLIPBOOK_SIZE = 8 * 1024 * 1024;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private RadarState mState;
+    private boolean mMutated;
+    private int mStateGeneration = -1;
+    private final RadarModel mModel;
+    private final RadarFrame mFrame;
+    private final Paint mStrokePaint;
+    private final Paint mFillPaint;
+
+    private Paint mGradientPaint;
+    private RingShaderCache mShaderCache;
+    private RingSpriteCache mSpriteCache;
+    private boolean mCachesValid;
+    private FlipbookPlan mFlipbookPlan;
+    private Flipbook mFlipbook;
+    private boolean mOwnsFlipbook;
+    private Paint mFlipbookPaint;
+    private final RectF mFlipbookRect = new RectF();
+    private final Flipbook.Callback mFlipbookCallback = new Flipbook.Callback() {
+        @Override
+        public void onFlipbookReady(Flipbook flipbook) {
+            invalidateSelf();
+        }
+    };
+
+    private RadarSweep mSweep;
+
+    private BlipLayer mBlipLayer;
+    private BlipRenderer mBlipRenderer;
+
+    private QualityGovernor mGovernor;
+    private int mQualityFloor = QualityGovernor.QUALITY_FULL;
+    private FrameStats mStats;
 
     private int mMinRadius;
     private int mMaxRadius;
 
-    private AnimatorSet mAnimator;
     private boolean mAnimating;
-    private final List<Circle> mCircles = new ArrayList<>();
+    private boolean mSuspended;
+    private boolean mResuming;
+    private boolean mFrameScheduled;
+    private RadarPulse mPulse;
+    private long mStartTime = -1;
+    private long mFrameTime;
+    private final Rect mDirtyBounds = new Rect();
+    private int mDirtyExtent;
 
     public RadarDrawable() {
+        this(RadarModel.getDefault());
+    }
+
+    public RadarDrawable(RadarModel model) {
+        this(new RadarState(model));
+    }
+
+    private RadarDrawable(RadarState state) {
+        RadarModel model = state.mModel;
+        mState = state;
+        mModel = model;
+        mFrame = new RadarFrame(model, DEFAULT_REFRESH_RATE);
+
+        mStrokePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mStrokePaint.setStyle(Style.STROKE);
+        mStrokePaint.setColor(model.getColor());
+        mStrokePaint.setStrokeWidth(model.getStrokeWidth());
+        mFillPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mFillPaint.setStyle(Style.FILL);
+        mFillPaint.setColor(model.getColor());
+    }
+
+    public RadarModel getModel() {
+        return mModel;
+    }
+
+    public int getRenderMode() {
+        return mState.mRenderMode;
+    }
+
+    /**
+     * @param renderMode {@link #RENDER_MODE_CIRCLES}, {@link #RENDER_MODE_GRADIENT},
+     *                   {@link #RENDER_MODE_SPRITES} or {@link #RENDER_MODE_FLIPBOOK}
+     */
+    public void setRenderMode(int renderMode) {
+        if (renderMode != RENDER_MODE_CIRCLES && renderMode != RENDER_MODE_GRADIENT
+                && renderMode != RENDER_MODE_SPRITES && renderMode != RENDER_MODE_FLIPBOOK) {
+            throw new IllegalArgumentException(String.format("Render mode %d not supported.", renderMode));
+        }
+        if (renderMode == mState.mRenderMode) {
+            return;
+        }
+
+        mState.mRenderMode = renderMode;
+        if (renderMode != RENDER_MODE_FLIPBOOK) {
+            mState.mFlipbook = null;
+        }
+        onStateChanged();
+        invalidateSelf();
+    }
+
+    /**
+     * @param maxBytes memory budget of the ring sprites used by {@link #RENDER_MODE_SPRITES}
+     */
+    public void setSpriteCacheSize(int maxBytes) {
+        if (maxBytes == mState.mSpriteCacheSize) {
+            return;
+        }
+
+        mState.mSpriteCacheSize = maxBytes;
+        // The cache may still be shared with the state this one was mutated from, so
+        // it is replaced rather than resized; drawables switch to the new one on sync.
+        mState.mSpriteCache = null;
+        onStateChanged();
+    }
+
+    /**
+     * @param maxBytes memory budget of the frames used by {@link #RENDER_MODE_FLIPBOOK}
+     */
+    public void setFlipbookSize(int maxBytes) {
+        mState.mFlipbookSize = maxBytes;
+        // Drawables drop it on their next sync. It is not cancelled: a state mutated from
+        // this one may still play it.
+        mState.mFlipbook = null;
+        onStateChanged();
+    }
+
+    /**
+     * @return how {@link #RENDER_MODE_FLIPBOOK} pre-renders the animation for the current
+     * bounds and budget, or {@code null} until the first frame is drawn in that mode
+     */
+    public FlipbookPlan getFlipbookPlan() {
+        return mFlipbookPlan;
+    }
+
+    /**
+     * Adds a rotating sweep beam over the rings, timed by the sweep settings of the model.
+     */
+    public void setSweepEnabled(boolean sweepEnabled) {
+        if (sweepEnabled == mState.mSweepEnabled) {
+            return;
+        }
+
+        mState.mSweepEnabled = sweepEnabled;
+        onStateChanged();
+        invalidateSelf();
+    }
+
+    public boolean isSweepEnabled() {
+        return mState.mSweepEnabled;
+    }
+
+    /**
+     * Plots the targets of {@code blipLayer} over the rings, lit by the sweep beam when
+     * it is enabled and by the ring fronts otherwise. Only the lit buckets of the
+     * layer's index are visited each frame.
+     */
+    public void setBlipLayer(BlipLayer blipLayer) {
+        if (blipLayer == mBlipLayer) {
+            return;
+        }
+
+        mBlipLayer = blipLayer;
+        if (blipLayer != null && mBlipRenderer == null) {
+            mBlipRenderer = new BlipRenderer(mModel);
+        }
+        invalidateCaches();
+        invalidateSelf();
     }
 
+    public BlipLayer getBlipLayer() {
+        return mBlipLayer;
+    }
+
+    /**
+     * Caps how often the animation advances, the frame callback is then only posted
+     * once per capped frame instead of on every vsync.
+     *
+     * @param frameRate frames per second, 0 to follow the display refresh rate
+     */
+    public void setMaxFrameRate(float frameRate) {
+        if (frameRate < 0) {
+            throw new IllegalArgumentException("frameRate must not be negative: " + frameRate);
+        }
+        mState.mMaxFrameRate = frameRate;
+    }
+
+    public float getMaxFrameRate() {
+        return mState.mMaxFrameRate;
+    }
+
+    /**
+     * Watches the intervals between frames and lowers the quality of the live ring
+     * drawing (fill pass, anti-aliasing, then every other ring) while frames keep
+     * missing vsyncs, restoring it once they are on time again. Gradient and flipbook
+     * frames cost the same whatever the ring count and are not affected.
+     */
+    public void setAdaptiveQuality(boolean adaptiveQuality) {
+        if (adaptiveQuality == (mGovernor != null)) {
+            return;
+        }
+
+        if (adaptiveQuality) {
+            mGovernor = new QualityGovernor();
+            mGovernor.setFloor(mQualityFloor);
+        } else {
+            mGovernor = null;
+        }
+        applyQuality();
+    }
+
+    /**
+     * Keeps the quality at {@code quality} or below, with or without adaptive quality,
+     * for example while the device is in power save mode or running hot.
+     *
+     * @param quality one of the {@code QUALITY_} constants of {@link QualityGovernor}
+     */
+    public void setQualityFloor(int quality) {
+        mQualityFloor = Math.max(QualityGovernor.QUALITY_FULL, Math.min(QualityGovernor.QUALITY_HALF_RINGS, quality));
+        if (mGovernor != null) {
+            mGovernor.setFloor(mQualityFloor);
+        }
+        applyQuality();
+        invalidateSelf();
+    }
+
+    public int getQuality() {
+        return mGovernor != null ? mGovernor.getQuality() : mQualityFloor;
+    }
+
+    /**
+     * Records draw times, skipped frames and invalidations into {@code stats}, {@code null}
+     * (the default) to record nothing. One {@link FrameStats} may be shared by many drawables,
+     * also on different threads; it then counts each missed vsync once.
+     */
+    public void setFrameStats(FrameStats stats) {
+        mStats = stats;
+    }
+
+    public FrameStats getFrameStats() {
+        return mStats;
+    }
+
+    /**
+     * @param pulse shared frame callback to advance the animation with, {@code null}
+     *              for a frame callback of this drawable's own
+     */
+    public void setPulse(RadarPulse pulse) {
+        if (pulse == mPulse) {
+            return;
+        }
+
+        cancelFrame();
+        mPulse = pulse;
+        scheduleFrame();
+    }
+
+    public RadarPulse getPulse() {
+        return mPulse;
+    }
+
+    /**
+     * Sets the radius the rings start from, for this drawable only, like its bounds.
+     */
     public void setMinRadius(int startRadius) {
+        if (startRadius == mMinRadius) {
+            return;
+        }
+
         mMinRadius = startRadius;
+        invalidateCaches();
         if (mAnimating) {
-            initAnimator();
+            scheduleFrame();
         }
     }
 
+    /**
+     * Resamples the easing tables for the display this drawable is shown on, drawables
+     * sharing its constant state may be shown on other displays.
+     */
+    public void setRefreshRate(float refreshRate) {
+        if (refreshRate == mFrame.getRefreshRate()) {
+            return;
+        }
+
+        mFrame.setRefreshRate(refreshRate);
+        invalidateCaches();
+    }
+
     // Drawable
 
     @Override
     protected void onBoundsChange(Rect bounds) {
         mMaxRadius = Math.min(bounds.width(), bounds.height()) >> 1;
+        invalidateCaches();
         if (mAnimating) {
-            initAnimator();
+            scheduleFrame();
         }
     }
 
     @Override
     public void draw(Canvas canvas) {
+        if (!isRunning() || mStartTime < 0) {
+            return;
+        }
+
+        if (mStats == null) {
+            drawRadar(canvas);
+            return;
+        }
+
+        long start = System.nanoTime();
+        drawRadar(canvas);
+        mStats.recordDraw(start, System.nanoTime());
+    }
+
+    private void drawRadar(Canvas canvas) {
+        long elapsed = getElapsed();
         Rect rect = getBounds();
-        if (isRunning()) {
-            for (Circle circle : mCircles) {
-                circle.draw(canvas, rect);
+        float cx = rect.exactCenterX();
+        float cy = rect.exactCenterY();
+
+        syncState();
+        if (!mCachesValid) {
+            mFrame.update(elapsed, mMinRadius, mMaxRadius);
+            if (mSweep != null) {
+                mSweep.setGeometry(cx, cy, mMaxRadius);
+            }
+            mCachesValid = true;
+        }
+        validateSharedCaches(cx, cy);
+
+        drawRings(canvas, elapsed, cx, cy);
+        if (mState.mSweepEnabled) {
+            mSweep.draw(canvas, elapsed);
+        }
+        if (mBlipLayer != null) {
+            BlipIndex index = mBlipLayer.getIndex();
+            if (mState.mSweepEnabled) {
+                mBlipRenderer.drawSwept(canvas, index, cx, cy, mMaxRadius, mModel.getSweepAngle(elapsed));
+            } else {
+                mBlipRenderer.drawRinged(canvas, index, mFrame, cx, cy, mMaxRadius);
             }
         }
     }
 
+    private void drawRings(Canvas canvas, long elapsed, float cx, float cy) {
+        if (mState.mRenderMode == RENDER_MODE_FLIPBOOK && drawFlipbook(canvas, elapsed, cx, cy)) {
+            return;
+        }
+
+        if (mState.mRenderMode == RENDER_MODE_GRADIENT) {
+            mGradientPaint.setShader(mShaderCache.getShader(elapsed));
+            canvas.drawCircle(cx, cy, mShaderCache.getOuterRadius(), mGradientPaint);
+            return;
+        }
+
+        int quality = getQuality();
+        int step = quality >= QualityGovernor.QUALITY_HALF_RINGS ? 2 : 1;
+        for (int i = 0; i < mFrame.getCount(); i += step) {
+            float radius = mFrame.getRadius(i);
+            if (mState.mRenderMode == RENDER_MODE_SPRITES
+                    && mSpriteCache.draw(canvas, cx, cy, radius, mFrame.getFraction(i))) {
+                continue;
+            }
+            if (quality < QualityGovernor.QUALITY_NO_FILL) {
+                mFillPaint.setAlpha(mFrame.getFillAlpha(i));
+                canvas.drawCircle(cx, cy, radius, mFillPaint);
+            }
+            mStrokePaint.setAlpha(mFrame.getStrokeAlpha(i));
+            canvas.drawCircle(cx, cy, radius, mStrokePaint);
+        }
+    }
+
+    private boolean drawFlipbook(Canvas canvas, long elapsed, float cx, float cy) {
+        if (mFlipbookPlan == null) {
+            // Shared like the other render caches: set up by the first drawable to use it,
+            // a drawable of another geometry renders one of its own.
+            float refreshRate = mFrame.getRefreshRate();
+            Flipbook shared = mState.mFlipbook;
+            if (shared != null && shared.hasGeometry(mMinRadius, mMaxRadius, refreshRate)) {
+                mFlipbook = shared;
+                mFlipbookPlan = shared.getPlan();
+            } else {
+                float outerRadius = GradientBands.getOuterRadius(mMaxRadius, mModel.getStrokeWidth());
+                int size = 2 * (int) Math.ceil(outerRadius);
+                mFlipbookPlan = FlipbookPlan.create(mModel, size, refreshRate, mState.mFlipbookSize);
+                if (mFlipbookPlan.isPrerendered()) {
+                    mFlipbook = new Flipbook(mModel, mFlipbookPlan, mMinRadius, mMaxRadius, refreshRate);
+                    mFlipbook.render(mFlipbookCallback);
+                    mOwnsFlipbook = shared != null;
+                    if (shared == null) {
+                        mState.mFlipbook = mFlipbook;
+                    }
+                }
+            }
+        }
+
+        int warmUp = mModel.getWarmUp();
+        if (mFlipbook == null || !mFlipbook.isReady() || elapsed < warmUp) {
+            return false;
+        }
+
+        float half = mFlipbookPlan.getFrameSize() * mFlipbookPlan.getScale() / 2f;
+        mFlipbookRect.set(cx - half, cy - half, cx + half, cy + half);
+        canvas.drawBitmap(mFlipbook.getFrame(elapsed - warmUp), null, mFlipbookRect, mFlipbookPaint);
+        return true;
+    }
+
+    /**
+     * Limits redraws to the square around the largest ring of the current and the
+     * previous frame, the rest of the bounds stays transparent. Only hosts that pass
+     * this rect on redraw less: {@link RadarTextureView} locks just this rect of its
+     * surface, {@link RadarView} passes it to the view system, which honours it in
+     * software and before Lollipop, and ImageView invalidates the whole view.
+     */
+    @Override
+    public Rect getDirtyBounds() {
+        return mDirtyBounds;
+    }
+
+    /**
+     * Suspends the animation clock while hidden, without any frame callback, and
+     * resumes it in the phase it was left unless {@code restart} is requested.
+     */
+    @Override
+    public boolean setVisible(boolean visible, boolean restart) {
+        boolean changed = super.setVisible(visible, restart);
+        if (!visible) {
+            suspend();
+        } else if (mSuspended || changed && restart) {
+            resume(restart);
+        }
+        return changed;
+    }
+
     @Override
     public void setAlpha(int alpha) {
     }
@@ -71,99 +493,320 @@ public class RadarDrawable extends Drawable implements Animatable {
         return 0;
     }
 
+    @Override
+    public ConstantState getConstantState() {
+        return mState;
+    }
+
+    /**
+     * Gives this drawable a configuration of its own; the render caches stay shared.
+     */
+    @Override
+    public Drawable mutate() {
+        if (!mMutated && super.mutate() == this) {
+            mState = new RadarState(mState);
+            mStateGeneration = mState.mGeneration;
+            mMutated = true;
+        }
+        return this;
+    }
+
     // Animatable
 
     @Override
     public void start() {
-        mAnimating = true;
-        if (!isRunning()) {
-            initAnimator();
+        if (mAnimating) {
+            return;
         }
+
+        mAnimating = true;
+        mStartTime = -1;
+        mResuming = false;
+        scheduleFrame();
     }
 
     @Override
     public void stop() {
         mAnimating = false;
-        if (isRunning()) {
-            mAnimator.cancel();
-        }
+        cancelFrame();
     }
 
     @Override
     public boolean isRunning() {
-        return mAnimator != null && mAnimator.isRunning();
+        return mAnimating && mMaxRadius > mMinRadius;
     }
 
-    private void initAnimator() {
-        if (isRunning()) {
-            mAnimator.cancel();
-            mCircles.clear();
+    // FrameCallback
+
+    /**
+     * The only clock of the drawable: one callback per vsync invalidates once,
+     * whatever the number of rings, and {@link #draw(Canvas)} derives every
+     * ring's phase from the frame time.
+     */
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mFrameScheduled = false;
+        if (advance(frameTimeNanos)) {
+            scheduleFrame();
+        }
+    }
+
+    /**
+     * @return {@code false} once the drawable no longer needs frames
+     */
+    boolean advance(long frameTimeNanos) {
+        if (!isRunning() || mSuspended) {
+            mFrameScheduled = false;
+            return false;
+        }
+        if (getCallback() == null) {
+            // Nobody shows the drawable anymore, setVisible(true, ...) resumes it.
+            mFrameScheduled = false;
+            suspend();
+            return false;
+        }
+        if (mPulse != null && mState.mMaxFrameRate > 0 && mStartTime >= 0 && !mResuming
+                && frameTimeNanos - mFrameTime < getCappedFrameNanos()) {
+            return true;
         }
 
-        if (mMaxRadius <= mMinRadius) {
+        if (mStartTime < 0) {
+            mStartTime = frameTimeNanos;
+        } else if (mResuming) {
+            mStartTime += frameTimeNanos - mFrameTime;
+        } else {
+            long interval = frameTimeNanos - mFrameTime;
+            long expected = getExpectedFrameNanos();
+            if (mStats != null) {
+                mStats.recordFrame(frameTimeNanos, interval, expected);
+            }
+            if (mGovernor != null && mGovernor.onFrame(interval, expected)) {
+                applyQuality();
+            }
+        }
+        mResuming = false;
+        mFrameTime = frameTimeNanos;
+        syncState();
+        if (updateFrame()) {
+            if (mStats != null) {
+                mStats.recordInvalidation();
+            }
+            invalidateSelf();
+        }
+        return true;
+    }
+
+    /**
+     * @return time between two capped frames, less half a vsync to land on the closest vsync
+     */
+    private long getCappedFrameNanos() {
+        return (long) (NANOS_PER_SECOND / mState.mMaxFrameRate - NANOS_PER_SECOND / 2 / mFrame.getRefreshRate());
+    }
+
+    /**
+     * @return time between two frame callbacks when none is missed
+     */
+    private long getExpectedFrameNanos() {
+        long vsync = (long) (NANOS_PER_SECOND / mFrame.getRefreshRate());
+        return mState.mMaxFrameRate > 0 ? Math.max(vsync, (long) (NANOS_PER_SECOND / mState.mMaxFrameRate)) : vsync;
+    }
+
+    private long getElapsed() {
+        return (mFrameTime - mStartTime) / NANOS_PER_MILLI;
+    }
+
+    /**
+     * @return {@code false} if the frame would look the same as the previous one
+     */
+    private boolean updateFrame() {
+        if (!mFrame.update(getElapsed(), mMinRadius, mMaxRadius) && !mState.mSweepEnabled) {
+            return false;
+        }
+
+        float margin = mModel.getStrokeWidth() / 2 + 2;
+        if (mState.mRenderMode == RENDER_MODE_FLIPBOOK && mFlipbookPlan != null) {
+            margin += mFlipbookPlan.getScale();
+        }
+
+        float radius = mState.mSweepEnabled ? mMaxRadius : mFrame.getMaxRadius();
+        int extent = (int) Math.ceil(radius + margin);
+        int dirtyExtent = Math.max(extent, mDirtyExtent);
+        mDirtyExtent = extent;
+
+        Rect bounds = getBounds();
+        mDirtyBounds.set(bounds.centerX() - dirtyExtent, bounds.centerY() - dirtyExtent,
+                bounds.centerX() + dirtyExtent, bounds.centerY() + dirtyExtent);
+        if (!mDirtyBounds.intersect(bounds)) {
+            mDirtyBounds.setEmpty();
+        }
+        return true;
+    }
+
+    private void invalidateCaches() {
+        mCachesValid = false;
+        mDirtyBounds.set(getBounds());
+        mDirtyExtent = Math.max(getBounds().width(), getBounds().height());
+        if (mFlipbook != null) {
+            // Once in a state, other drawables may be playing it.
+            if (mOwnsFlipbook) {
+                mFlipbook.cancel();
+            }
+            mFlipbook = null;
+            mOwnsFlipbook = false;
+        }
+        mFlipbookPlan = null;
+    }
+
+    /**
+     * Picks up changes made to the shared state, by this drawable or by another
+     * drawable sharing it, before they are drawn.
+     */
+    private void syncState() {
+        if (mStateGeneration == mState.mGeneration) {
             return;
         }
 
-        mAnimator = new AnimatorSet();
-        mAnimator.playTogether(createCircleAnimation(0), createCircleAnimation(1000), createCircleAnimation(2000));
+        mStateGeneration = mState.mGeneration;
+        int renderMode = mState.mRenderMode;
+        if (renderMode == RENDER_MODE_GRADIENT && mShaderCache == null) {
+            if (mState.mShaderCache == null) {
+                mState.mShaderCache = new RingShaderCache(mModel);
+            }
+            mGradientPaint = new Paint();
+            mShaderCache = mState.mShaderCache;
+        }
+        if (renderMode == RENDER_MODE_SPRITES
+                && (mSpriteCache == null || mSpriteCache.getMaxBytes() != mState.mSpriteCacheSize)) {
+            if (mState.mSpriteCache == null) {
+                mState.mSpriteCache = new RingSpriteCache(mModel, mState.mSpriteCacheSize);
+            }
+            mSpriteCache = mState.mSpriteCache;
+        }
+        if (renderMode == RENDER_MODE_FLIPBOOK && mFlipbookPaint == null) {
+            mFlipbookPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+            mFlipbookPaint.setColor(mModel.getColor());
+        }
+        if (mState.mSweepEnabled && mSweep == null) {
+            mSweep = new RadarSweep(mModel);
+        }
+        invalidateCaches();
+    }
 
-        if (mAnimating) {
-            mAnimator.start();
+    private void onStateChanged() {
+        mState.mGeneration++;
+        syncState();
+    }
+
+    /**
+     * Render caches are shared by every drawable of the same state. A shared cache is only
+     * set up by the first drawable to use it; a drawable with other bounds or min radius
+     * switches to a cache of its own rather than rebuilding the one the others draw from.
+     */
+    private void validateSharedCaches(float cx, float cy) {
+        float refreshRate = mFrame.getRefreshRate();
+        if (mShaderCache != null && !mShaderCache.hasGeometry(cx, cy, mMinRadius, mMaxRadius, refreshRate)) {
+            if (mShaderCache == mState.mShaderCache && mShaderCache.hasGeometry()) {
+                mShaderCache = new RingShaderCache(mModel);
+            }
+            mShaderCache.setGeometry(cx, cy, mMinRadius, mMaxRadius, refreshRate);
+        }
+        if (mSpriteCache != null && !mSpriteCache.hasGeometry(mMinRadius, mMaxRadius)) {
+            if (mSpriteCache == mState.mSpriteCache && mSpriteCache.hasGeometry()) {
+                mSpriteCache = new RingSpriteCache(mModel, mState.mSpriteCacheSize);
+            }
+            mSpriteCache.setGeometry(mMinRadius, mMaxRadius);
+        }
+    }
+
+    private void applyQuality() {
+        boolean antiAlias = getQuality() < QualityGovernor.QUALITY_NO_ANTI_ALIAS;
+        mStrokePaint.setAntiAlias(antiAlias);
+        mFillPaint.setAntiAlias(antiAlias);
+    }
+
+    private void suspend() {
+        mSuspended = true;
+        cancelFrame();
+    }
+
+    private void resume(boolean restart) {
+        mSuspended = false;
+        if (restart) {
+            mStartTime = -1;
+        }
+        mResuming = mStartTime >= 0;
+        scheduleFrame();
+    }
+
+    private void cancelFrame() {
+        if (mFrameScheduled) {
+            if (mPulse != null) {
+                mPulse.remove(this);
+            } else {
+                Choreographer.getInstance().removeFrameCallback(this);
+            }
+            mFrameScheduled = false;
         }
     }
 
-    private Animator createCircleAnimation(int startDelay) {
-        Circle circle = new Circle();
-        mCircles.add(circle);
-        return circle.getAnimator(startDelay, mMinRadius, mMaxRadius);
+    private void scheduleFrame() {
+        if (!mFrameScheduled && !mSuspended && isRunning()) {
+            if (mPulse != null) {
+                mPulse.add(this);
+            } else if (mState.mMaxFrameRate > 0 && mStartTime >= 0) {
+                long delay = Math.max(0, getCappedFrameNanos() / NANOS_PER_MILLI);
+                Choreographer.getInstance().postFrameCallbackDelayed(this, delay);
+            } else {
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+            mFrameScheduled = true;
+        }
     }
 
-    private class Circle implements AnimatorUpdateListener {
+    /**
+     * Configuration and render caches shared by every drawable created from it. The
+     * animation phase, bounds, min radius, refresh rate, quality and frame timing belong
+     * to each drawable.
+     */
+    static final class RadarState extends ConstantState {
 
-        private static final String RADIUS = "radius";
-        private static final String ALPHA_STROKE = "alphaStroke";
-        private static final String ALPHA_FILL = "alphaFill";
+        final RadarModel mModel;
+        int mRenderMode = RENDER_MODE_CIRCLES;
+        int mSpriteCacheSize = DEFAULT_SPRITE_CACHE_SIZE;
+        int mFlipbookSize = DEFAULT_FLIPBOOK_SIZE;
+        boolean mSweepEnabled;
+        float mMaxFrameRate;
+        int mGeneration;
 
-        private final Paint mStrokePaint;
-        private final Paint mFillPaint;
-        private int mRadius;
-        private ValueAnimator mAnimator;
+        RingShaderCache mShaderCache;
+        RingSpriteCache mSpriteCache;
+        Flipbook mFlipbook;
 
-        public Circle() {
-            mStrokePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-            mStrokePaint.setStyle(Style.STROKE);
-            mStrokePaint.setColor(Color.GREEN);
-            mStrokePaint.setStrokeWidth(2);
-            mFillPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-            mFillPaint.setStyle(Style.FILL);
-            mFillPaint.setColor(Color.GREEN);
+        RadarState(RadarModel model) {
+            mModel = model;
         }
 
-        public Animator getAnimator(int startDelay, int minRadius, int maxRadius) {
-            mAnimator = new ValueAnimator();
-            mAnimator.setValues(
-                    PropertyValuesHolder.ofInt(RADIUS, minRadius, maxRadius),
-                    PropertyValuesHolder.ofInt(ALPHA_STROKE, 200, 0),
-                    PropertyValuesHolder.ofInt(ALPHA_FILL, 30, 0)
-            );
-            mAnimator.setStartDelay(startDelay);
-            mAnimator.setDuration(DURATION);
-            mAnimator.setRepeatCount(ValueAnimator.INFINITE);
-            mAnimator.addUpdateListener(this);
-            return mAnimator;
+        RadarState(RadarState state) {
+            mModel = state.mModel;
+            mRenderMode = state.mRenderMode;
+            mSpriteCacheSize = state.mSpriteCacheSize;
+            mFlipbookSize = state.mFlipbookSize;
+            mSweepEnabled = state.mSweepEnabled;
+            mMaxFrameRate = state.mMaxFrameRate;
+            mGeneration = state.mGeneration;
+            mShaderCache = state.mShaderCache;
+            mSpriteCache = state.mSpriteCache;
+            mFlipbook = state.mFlipbook;
         }
 
         @Override
-        public void onAnimationUpdate(ValueAnimator animation) {
-            mRadius = (int) animation.getAnimatedValue(RADIUS);
-            mStrokePaint.setAlpha((int) animation.getAnimatedValue(ALPHA_STROKE));
-            mFillPaint.setAlpha((int) animation.getAnimatedValue(ALPHA_FILL));
-            invalidateSelf();
+        public Drawable newDrawable() {
+            return new RadarDrawable(this);
         }
 
-        public void draw(Canvas canvas, Rect rect) {
-            canvas.drawCircle(rect.centerX(), rect.centerY(), mRadius, mFillPaint);
-            canvas.drawCircle(rect.centerX(), rect.centerY(), mRadius, mStrokePaint);
+        @Override
+        public int getChangingConfigurations() {
+            return 0;
         }
     }
 }
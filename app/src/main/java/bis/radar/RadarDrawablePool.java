@@ -0,0 +1,75 @@
+package bis.radar;
+
+import android.graphics.drawable.Drawable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stopped {@link RadarDrawable}s of one model kept for reuse, for lists binding radars
+ * to recycled views. New drawables are created from one constant state so they share
+ * its render caches, and every drawable advances on the shared {@link RadarPulse}.
+ * Must be used from the main thread.
+ */
+public class RadarDrawablePool {
+
+    private final RadarModel mModel;
+    private final Drawable.ConstantState mState;
+    private final int mMaxSize;
+    private final List<RadarDrawable> mFree = new ArrayList<>();
+    private float mRefreshRate;
+
+    /**
+     * @param maxSize number of released drawables kept for reuse
+     */
+    public RadarDrawablePool(RadarModel model, int maxSize) {
+        mModel = model;
+        mState = new RadarDrawable(model).getConstantState();
+        mMaxSize = maxSize;
+    }
+
+    public RadarModel getModel() {
+        return mModel;
+    }
+
+    /**
+     * Refresh rate of the display the drawables are shown on, applied to every drawable acquired from now on.
+     */
+    public void setRefreshRate(float refreshRate) {
+        mRefreshRate = refreshRate;
+    }
+
+    /**
+     * @return a stopped drawable, started again from its first frame by {@link RadarDrawable#start()}
+     */
+    public RadarDrawable acquire() {
+        RadarDrawable drawable;
+        if (mFree.isEmpty()) {
+            drawable = (RadarDrawable) mState.newDrawable();
+            drawable.setPulse(RadarPulse.getInstance());
+        } else {
+            drawable = mFree.remove(mFree.size() - 1);
+        }
+        if (mRefreshRate > 0) {
+            drawable.setRefreshRate(mRefreshRate);
+        }
+        return drawable;
+    }
+
+    /**
+     * Stops {@code drawable} and keeps it for reuse. It must no longer be shown by any view.
+     */
+    public void release(RadarDrawable drawable) {
+        drawable.stop();
+        drawable.setVisible(false, false);
+        drawable.setCallback(null);
+        drawable.setBlipLayer(null);
+        if (mFree.size() < mMaxSize) {
+            mFree.add(drawable);
+        }
+    }
+
+    public void clear() {
+        mFree.clear();
+    }
+}
@@ -0,0 +1,120 @@
+package bis.radar;
+
+/**
+ * Per-drawable animation state of every ring of a {@link RadarModel}, kept in
+ * primitive arrays and recomputed in place for each frame.
+ */
+public final class RadarFrame {
+
+    private final RadarModel mModel;
+    private InterpolationTable mTable;
+    private int[] mStrokeAlphaTable;
+    private int[] mFillAlphaTable;
+
+    private int mCount;
+    private final float[] mFraction;
+    private final float[] mRadius;
+    private final int[] mStrokeAlpha;
+    private final int[] mFillAlpha;
+    private final int[] mPixelRadius;
+
+    public RadarFrame(RadarModel model, float refreshRate) {
+        mModel = model;
+        mFraction = new float[model.getRingCount()];
+        mRadius = new float[model.getRingCount()];
+        mStrokeAlpha = new int[model.getRingCount()];
+        mFillAlpha = new int[model.getRingCount()];
+        mPixelRadius = new int[model.getRingCount()];
+        setRefreshRate(refreshRate);
+    }
+
+    public RadarModel getModel() {
+        return mModel;
+    }
+
+    public float getRefreshRate() {
+        return mTable.getRefreshRate();
+    }
+
+    public void setRefreshRate(float refreshRate) {
+        if (mTable != null && refreshRate == mTable.getRefreshRate()) {
+            return;
+        }
+
+        mTable = mModel.getTable(refreshRate);
+        mStrokeAlphaTable = mTable.getAlphaTable(mModel.getStrokeAlpha());
+        mFillAlphaTable = mTable.getAlphaTable(mModel.getFillAlpha());
+    }
+
+    /**
+     * Computes the rings visible {@code elapsed} milliseconds after the animation started.
+     *
+     * @return {@code false} if no ring changed its integer radius or its alphas since
+     * the previous update, so the frame would look the same
+     */
+    public boolean update(long elapsed, float minRadius, float maxRadius) {
+        InterpolationTable table = mTable;
+        float range = maxRadius - minRadius;
+        int count = 0;
+        boolean changed = false;
+        for (int i = 0; i < mRadius.length; i++) {
+            long time = elapsed - mModel.getStartDelay(i);
+            if (time < 0) {
+                break;
+            }
+
+            int frame = table.getFrame(time);
+            float fraction = table.getFraction(time);
+            float radius = minRadius + fraction * range;
+            int pixelRadius = (int) radius;
+            int strokeAlpha = mStrokeAlphaTable[frame];
+            int fillAlpha = mFillAlphaTable[frame];
+            changed |= count >= mCount || pixelRadius != mPixelRadius[count]
+                    || strokeAlpha != mStrokeAlpha[count] || fillAlpha != mFillAlpha[count];
+
+            mFraction[count] = fraction;
+            mRadius[count] = radius;
+            mPixelRadius[count] = pixelRadius;
+            mStrokeAlpha[count] = strokeAlpha;
+            mFillAlpha[count] = fillAlpha;
+            count++;
+        }
+        changed |= count != mCount;
+        mCount = count;
+        return changed;
+    }
+
+    /**
+     * @return radius of the largest visible ring, 0 if none is visible
+     */
+    public float getMaxRadius() {
+        float max = 0;
+        for (int i = 0; i < mCount; i++) {
+            max = Math.max(max, mRadius[i]);
+        }
+        return max;
+    }
+
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * @return eased progress of the ring from the min (0) to the max (1) radius
+     */
+    public float getFraction(int index) {
+        return mFraction[index];
+    }
+
+    public float getRadius(int index) {
+        return mRadius[index];
+    }
+
+    public int getStrokeAlpha(int index) {
+        return mStrokeAlpha[index];
+    }
+
+    public int getFillAlpha(int index) {
+        return mFillAlpha[index];
+    }
+}
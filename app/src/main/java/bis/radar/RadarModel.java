@@ -0,0 +1,304 @@
+package bis.radar;
+
+/**
+ * Immutable description of a radar animation: how many rings, how they are
+ * staggered, timed, eased and painted. Pure Java, so it can be unit-tested and
+ * benchmarked on the JVM; {@link RadarDrawable} renders it.
+ */
+public final class RadarModel {
+
+    public interface Easing {
+        float ease(float input);
+    }
+
+    public static final Easing LINEAR = new Easing() {
+        @Override
+        public float ease(float input) {
+            return input;
+        }
+    };
+
+    /**
+     * The default easing of {@code ValueAnimator}.
+     */
+    public static final Easing ACCELERATE_DECELERATE = new Easing() {
+        @Override
+        public float ease(float input) {
+            return (float) (Math.cos((input + 1) * Math.PI) / 2.0f) + 0.5f;
+        }
+    };
+
+    public static final Easing DECELERATE = new Easing() {
+        @Override
+        public float ease(float input) {
+            return 1.0f - (1.0f - input) * (1.0f - input);
+        }
+    };
+
+    private static final int DEFAULT_RING_COUNT = 3;
+    private static final int DEFAULT_STAGGER = 1000;
+    private static final int DEFAULT_DURATION = 3000;
+    private static final int DEFAULT_COLOR = 0xFF00FF00;
+    private static final float DEFAULT_STROKE_WIDTH = 2;
+    private static final int DEFAULT_STROKE_ALPHA = 200;
+    private static final int DEFAULT_FILL_ALPHA = 30;
+    private static final int DEFAULT_SWEEP_DURATION = 4000;
+    private static final float DEFAULT_SWEEP_TRAIL = 90;
+    private static final int DEFAULT_SWEEP_ALPHA = 160;
+
+    private static final RadarModel DEFAULT = new Builder().build();
+
+    private final int mRingCount;
+    private final int mStagger;
+    private final int mDuration;
+    private final Easing mEasing;
+    private final int mColor;
+    private final float mStrokeWidth;
+    private final int mStrokeAlpha;
+    private final int mFillAlpha;
+    private final int mSweepDuration;
+    private final float mSweepTrail;
+    private final int mSweepAlpha;
+
+    private RadarModel(Builder builder) {
+        mRingCount = builder.mRingCount;
+        mStagger = builder.mStagger;
+        mDuration = builder.mDuration;
+        mEasing = builder.mEasing;
+        mColor = builder.mColor;
+        mStrokeWidth = builder.mStrokeWidth;
+        mStrokeAlpha = builder.mStrokeAlpha;
+        mFillAlpha = builder.mFillAlpha;
+        mSweepDuration = builder.mSweepDuration;
+        mSweepTrail = builder.mSweepTrail;
+        mSweepAlpha = builder.mSweepAlpha;
+    }
+
+    public static RadarModel getDefault() {
+        return DEFAULT;
+    }
+
+    public int getRingCount() {
+        return mRingCount;
+    }
+
+    public int getStagger() {
+        return mStagger;
+    }
+
+    public int getDuration() {
+        return mDuration;
+    }
+
+    public Easing getEasing() {
+        return mEasing;
+    }
+
+    public int getColor() {
+        return mColor;
+    }
+
+    public float getStrokeWidth() {
+        return mStrokeWidth;
+    }
+
+    public int getStrokeAlpha() {
+        return mStrokeAlpha;
+    }
+
+    public int getFillAlpha() {
+        return mFillAlpha;
+    }
+
+    public int getSweepDuration() {
+        return mSweepDuration;
+    }
+
+    public float getSweepTrail() {
+        return mSweepTrail;
+    }
+
+    public int getSweepAlpha() {
+        return mSweepAlpha;
+    }
+
+    /**
+     * @return clockwise angle in degrees of the sweep beam {@code elapsed} milliseconds
+     * after the animation started
+     */
+    public float getSweepAngle(long elapsed) {
+        return elapsed % mSweepDuration * 360f / mSweepDuration;
+    }
+
+    public int getStartDelay(int ring) {
+        return ring * mStagger;
+    }
+
+    /**
+     * @return time in milliseconds after which every ring is animating
+     */
+    public int getWarmUp() {
+        return (mRingCount - 1) * mStagger;
+    }
+
+    /**
+     * @return shortest time in milliseconds after which, once warmed up, all the rings
+     * together look the same again. Ring phases are multiples of the stagger modulo the
+     * duration; when the rings cover those phases evenly the pattern repeats every
+     * gcd(stagger, duration), otherwise only after the whole duration.
+     */
+    public int getPeriod() {
+        if ((long) mRingCount * mStagger % mDuration == 0) {
+            return gcd(mStagger, mDuration);
+        }
+        return mDuration;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int r = a % b;
+            a = b;
+            b = r;
+        }
+        return a;
+    }
+
+    public InterpolationTable getTable(float refreshRate) {
+        return InterpolationTable.obtain(mDuration, refreshRate, mEasing);
+    }
+
+    public Builder buildUpon() {
+        return new Builder(this);
+    }
+
+    public static final class Builder {
+
+        private int mRingCount = DEFAULT_RING_COUNT;
+        private int mStagger = DEFAULT_STAGGER;
+        private int mDuration = DEFAULT_DURATION;
+        private Easing mEasing = ACCELERATE_DECELERATE;
+        private int mColor = DEFAULT_COLOR;
+        private float mStrokeWidth = DEFAULT_STROKE_WIDTH;
+        private int mStrokeAlpha = DEFAULT_STROKE_ALPHA;
+        private int mFillAlpha = DEFAULT_FILL_ALPHA;
+        private int mSweepDuration = DEFAULT_SWEEP_DURATION;
+        private float mSweepTrail = DEFAULT_SWEEP_TRAIL;
+        private int mSweepAlpha = DEFAULT_SWEEP_ALPHA;
+
+        public Builder() {
+        }
+
+        private Builder(RadarModel model) {
+            mRingCount = model.mRingCount;
+            mStagger = model.mStagger;
+            mDuration = model.mDuration;
+            mEasing = model.mEasing;
+            mColor = model.mColor;
+            mStrokeWidth = model.mStrokeWidth;
+            mStrokeAlpha = model.mStrokeAlpha;
+            mFillAlpha = model.mFillAlpha;
+            mSweepDuration = model.mSweepDuration;
+            mSweepTrail = model.mSweepTrail;
+            mSweepAlpha = model.mSweepAlpha;
+        }
+
+        public Builder setRingCount(int ringCount) {
+            if (ringCount <= 0) {
+                throw new IllegalArgumentException("ringCount must be positive: " + ringCount);
+            }
+            mRingCount = ringCount;
+            return this;
+        }
+
+        /**
+         * @param stagger delay in milliseconds between the starts of two consecutive rings
+         */
+        public Builder setStagger(int stagger) {
+            if (stagger < 0) {
+                throw new IllegalArgumentException("stagger must not be negative: " + stagger);
+            }
+            mStagger = stagger;
+            return this;
+        }
+
+        /**
+         * @param duration time in milliseconds a ring takes to grow from the min to the max radius
+         */
+        public Builder setDuration(int duration) {
+            if (duration <= 0) {
+                throw new IllegalArgumentException("duration must be positive: " + duration);
+            }
+            mDuration = duration;
+            return this;
+        }
+
+        public Builder setEasing(Easing easing) {
+            if (easing == null) {
+                throw new IllegalArgumentException("easing must not be null");
+            }
+            mEasing = easing;
+            return this;
+        }
+
+        public Builder setColor(int color) {
+            mColor = color;
+            return this;
+        }
+
+        public Builder setStrokeWidth(float strokeWidth) {
+            if (strokeWidth < 0) {
+                throw new IllegalArgumentException("strokeWidth must not be negative: " + strokeWidth);
+            }
+            mStrokeWidth = strokeWidth;
+            return this;
+        }
+
+        public Builder setStrokeAlpha(int strokeAlpha) {
+            mStrokeAlpha = checkAlpha(strokeAlpha);
+            return this;
+        }
+
+        public Builder setFillAlpha(int fillAlpha) {
+            mFillAlpha = checkAlpha(fillAlpha);
+            return this;
+        }
+
+        /**
+         * @param sweepDuration time in milliseconds the sweep beam takes to turn once
+         */
+        public Builder setSweepDuration(int sweepDuration) {
+            if (sweepDuration <= 0) {
+                throw new IllegalArgumentException("sweepDuration must be positive: " + sweepDuration);
+            }
+            mSweepDuration = sweepDuration;
+            return this;
+        }
+
+        /**
+         * @param sweepTrail angle in degrees over which the beam fades out behind its edge
+         */
+        public Builder setSweepTrail(float sweepTrail) {
+            if (sweepTrail <= 0 || sweepTrail > 360) {
+                throw new IllegalArgumentException("sweepTrail must be in (0..360]: " + sweepTrail);
+            }
+            mSweepTrail = sweepTrail;
+            return this;
+        }
+
+        public Builder setSweepAlpha(int sweepAlpha) {
+            mSweepAlpha = checkAlpha(sweepAlpha);
+            return this;
+        }
+
+        private static int checkAlpha(int alpha) {
+            if (alpha < 0 || alpha > 255) {
+                throw new IllegalArgumentException("alpha must be in [0..255]: " + alpha);
+            }
+            return alpha;
+        }
+
+        public RadarModel build() {
+            return new RadarModel(this);
+        }
+    }
+}
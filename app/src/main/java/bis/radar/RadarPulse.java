@@ -0,0 +1,84 @@
+package bis.radar;
+
+import android.os.Looper;
+import android.view.Choreographer;
+import android.view.Choreographer.FrameCallback;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A single frame callback advancing any number of {@link RadarDrawable}s in one
+ * pass, for screens showing many radars at once. Drawables are only weakly
+ * referenced and leave the pulse when they stop, get hidden or are no longer
+ * attached to a view, so the per-frame cost follows the visible radars.
+ * Must be used from the thread that owns the drawables.
+ */
+public class RadarPulse implements FrameCallback {
+
+    private static RadarPulse sInstance;
+
+    private final List<WeakReference<RadarDrawable>> mDrawables = new ArrayList<>();
+    private boolean mFrameScheduled;
+
+    public static RadarPulse getInstance() {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            throw new IllegalStateException("The shared pulse must be used from the main thread.");
+        }
+        if (sInstance == null) {
+            sInstance = new RadarPulse();
+        }
+        return sInstance;
+    }
+
+    public int getDrawableCount() {
+        return mDrawables.size();
+    }
+
+    void add(RadarDrawable drawable) {
+        for (int i = 0; i < mDrawables.size(); i++) {
+            if (mDrawables.get(i).get() == drawable) {
+                return;
+            }
+        }
+
+        mDrawables.add(new WeakReference<>(drawable));
+        if (!mFrameScheduled) {
+            Choreographer.getInstance().postFrameCallback(this);
+            mFrameScheduled = true;
+        }
+    }
+
+    void remove(RadarDrawable drawable) {
+        for (int i = 0; i < mDrawables.size(); i++) {
+            if (mDrawables.get(i).get() == drawable) {
+                removeAt(i);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mFrameScheduled = false;
+
+        for (int i = mDrawables.size() - 1; i >= 0; i--) {
+            RadarDrawable drawable = mDrawables.get(i).get();
+            if (drawable == null || !drawable.advance(frameTimeNanos)) {
+                removeAt(i);
+            }
+        }
+
+        if (!mDrawables.isEmpty()) {
+            Choreographer.getInstance().postFrameCallback(this);
+            mFrameScheduled = true;
+        }
+    }
+
+    private void removeAt(int index) {
+        int last = mDrawables.size() - 1;
+        mDrawables.set(index, mDrawables.get(last));
+        mDrawables.remove(last);
+    }
+}
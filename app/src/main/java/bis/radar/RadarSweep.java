@@ -0,0 +1,60 @@
+package bis.radar;
+
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.SweepGradient;
+
+/**
+ * Rotating beam of a {@link RadarModel}: a sweep gradient built once per geometry
+ * and turned by its local matrix, with no per-frame shader or paint allocation.
+ */
+class RadarSweep {
+
+    private final RadarModel mModel;
+    private final Paint mBeamPaint;
+    private final Paint mEdgePaint;
+    private final Matrix mMatrix = new Matrix();
+
+    private SweepGradient mShader;
+    private float mCenterX;
+    private float mCenterY;
+    private float mRadius;
+
+    public RadarSweep(RadarModel model) {
+        mModel = model;
+        mBeamPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mEdgePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mEdgePaint.setColor(model.getColor());
+        mEdgePaint.setAlpha(model.getSweepAlpha());
+        mEdgePaint.setStrokeWidth(model.getStrokeWidth());
+    }
+
+    public void setGeometry(float centerX, float centerY, float radius) {
+        if (mShader != null && centerX == mCenterX && centerY == mCenterY && radius == mRadius) {
+            return;
+        }
+
+        int color = mModel.getColor() & 0x00FFFFFF;
+        float trail = mModel.getSweepTrail() / 360;
+        mShader = new SweepGradient(centerX, centerY,
+                new int[]{color, color, (mModel.getSweepAlpha() << 24) | color},
+                new float[]{0, 1 - trail, 1});
+        mBeamPaint.setShader(mShader);
+        mCenterX = centerX;
+        mCenterY = centerY;
+        mRadius = radius;
+    }
+
+    public void draw(Canvas canvas, long elapsed) {
+        float angle = mModel.getSweepAngle(elapsed);
+        mMatrix.setRotate(angle, mCenterX, mCenterY);
+        mShader.setLocalMatrix(mMatrix);
+        canvas.drawCircle(mCenterX, mCenterY, mRadius, mBeamPaint);
+
+        double radians = Math.toRadians(angle);
+        canvas.drawLine(mCenterX, mCenterY,
+                mCenterX + (float) Math.cos(radians) * mRadius, mCenterY + (float) Math.sin(radians) * mRadius,
+                mEdgePaint);
+    }
+}
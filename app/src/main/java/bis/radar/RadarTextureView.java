@@ -0,0 +1,327 @@
+package bis.radar;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
+import android.graphics.SurfaceTexture;
+import android.graphics.drawable.Animatable;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.AttributeSet;
+import android.view.Surface;
+import android.view.TextureView;
+import android.view.View;
+
+/**
+ * Radar rendered by a {@link RadarDrawable} on a thread of its own, so the
+ * animation keeps its pace while the UI thread is busy. The drawable keeps its
+ * own frame clock, driven by the Choreographer of the render thread, and every
+ * frame it invalidates is drawn straight into the view's surface.
+ * <p>
+ * Configuration methods must be called from the UI thread and are applied on
+ * the render thread.
+ */
+public class RadarTextureView extends TextureView implements Animatable, TextureView.SurfaceTextureListener {
+
+    private RadarModel mModel = RadarModel.getDefault();
+    private int mMinRadius;
+    private int mRenderMode = RadarDrawable.RENDER_MODE_CIRCLES;
+    private float mMaxFrameRate;
+    private boolean mSweepEnabled;
+    private BlipLayer mBlipLayer;
+    private volatile boolean mAnimating;
+
+    private RenderThread mRenderThread;
+
+    public RadarTextureView(Context context) {
+        super(context);
+        init();
+    }
+
+    public RadarTextureView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public RadarTextureView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+        init();
+    }
+
+    private void init() {
+        setOpaque(false);
+        setSurfaceTextureListener(this);
+    }
+
+    public void setModel(RadarModel model) {
+        mModel = model;
+        reconfigure(true);
+    }
+
+    public RadarModel getModel() {
+        return mModel;
+    }
+
+    public void setMinRadius(int minRadius) {
+        mMinRadius = minRadius;
+        reconfigure(false);
+    }
+
+    /**
+     * @see RadarDrawable#setRenderMode(int)
+     */
+    public void setRenderMode(int renderMode) {
+        mRenderMode = renderMode;
+        reconfigure(false);
+    }
+
+    /**
+     * @see RadarDrawable#setMaxFrameRate(float)
+     */
+    public void setMaxFrameRate(float frameRate) {
+        mMaxFrameRate = frameRate;
+        reconfigure(false);
+    }
+
+    /**
+     * @see RadarDrawable#setSweepEnabled(boolean)
+     */
+    public void setSweepEnabled(boolean sweepEnabled) {
+        mSweepEnabled = sweepEnabled;
+        reconfigure(false);
+    }
+
+    /**
+     * @see RadarDrawable#setBlipLayer(BlipLayer)
+     */
+    public void setBlipLayer(BlipLayer blipLayer) {
+        mBlipLayer = blipLayer;
+        reconfigure(false);
+    }
+
+    // Animatable
+
+    @Override
+    public void start() {
+        mAnimating = true;
+        reconfigure(false);
+    }
+
+    @Override
+    public void stop() {
+        mAnimating = false;
+        reconfigure(false);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return mAnimating;
+    }
+
+    // View
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        reconfigure(false);
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        reconfigure(false);
+    }
+
+    // SurfaceTextureListener
+
+    @Override
+    public void onSurfaceTextureAvailable(SurfaceTexture surfaceTexture, int width, int height) {
+        mRenderThread = new RenderThread(surfaceTexture, getDisplayRefreshRate());
+        mRenderThread.start();
+        mRenderThread.post(mRenderThread.new Resize(width, height));
+        reconfigure(true);
+    }
+
+    @Override
+    public void onSurfaceTextureSizeChanged(SurfaceTexture surfaceTexture, int width, int height) {
+        mRenderThread.post(mRenderThread.new Resize(width, height));
+    }
+
+    @Override
+    public boolean onSurfaceTextureDestroyed(SurfaceTexture surfaceTexture) {
+        // The render thread may be drawing into it, so it releases the texture once it is done.
+        mRenderThread.quitRendering();
+        mRenderThread = null;
+        return false;
+    }
+
+    @Override
+    public void onSurfaceTextureUpdated(SurfaceTexture surfaceTexture) {
+    }
+
+    private float getDisplayRefreshRate() {
+        return getDisplay() != null ? getDisplay().getRefreshRate() : 60;
+    }
+
+    private void reconfigure(boolean recreate) {
+        if (mRenderThread != null) {
+            mRenderThread.post(mRenderThread.new Configure(recreate, mModel, mMinRadius, mRenderMode,
+                    mMaxFrameRate, mSweepEnabled, mBlipLayer, mAnimating, isShown() && getWindowVisibility() == VISIBLE));
+        }
+    }
+
+    private static class RenderThread extends HandlerThread implements Drawable.Callback {
+
+        private final SurfaceTexture mSurfaceTexture;
+        private final Surface mSurface;
+        private final float mRefreshRate;
+        private final Rect mDirty = new Rect();
+        private Handler mHandler;
+        private RadarDrawable mDrawable;
+        private int mWidth;
+        private int mHeight;
+
+        public RenderThread(SurfaceTexture surfaceTexture, float refreshRate) {
+            super("RadarRenderThread", Process.THREAD_PRIORITY_DISPLAY);
+            mSurfaceTexture = surfaceTexture;
+            mSurface = new Surface(surfaceTexture);
+            mRefreshRate = refreshRate;
+        }
+
+        public synchronized void post(Runnable runnable) {
+            if (mHandler == null) {
+                mHandler = new Handler(getLooper());
+            }
+            mHandler.post(runnable);
+        }
+
+        /**
+         * Stops drawing and releases the surface texture on the render thread, after its last frame.
+         */
+        public void quitRendering() {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    if (mDrawable != null) {
+                        mDrawable.stop();
+                        mDrawable.setCallback(null);
+                    }
+                    mSurface.release();
+                    mSurfaceTexture.release();
+                    quit();
+                }
+            });
+        }
+
+        private void render() {
+            if (mDrawable == null || !mSurface.isValid()) {
+                return;
+            }
+
+            mDirty.set(mDrawable.getDirtyBounds());
+            Canvas canvas;
+            try {
+                canvas = mSurface.lockCanvas(mDirty);
+            } catch (Surface.OutOfResourcesException | IllegalArgumentException e) {
+                return;
+            }
+            canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+            mDrawable.draw(canvas);
+            mSurface.unlockCanvasAndPost(canvas);
+        }
+
+        // Drawable.Callback
+
+        @Override
+        public void invalidateDrawable(Drawable who) {
+            render();
+        }
+
+        @Override
+        public void scheduleDrawable(Drawable who, Runnable what, long when) {
+            mHandler.postAtTime(what, who, when);
+        }
+
+        @Override
+        public void unscheduleDrawable(Drawable who, Runnable what) {
+            mHandler.removeCallbacks(what, who);
+        }
+
+        private class Resize implements Runnable {
+
+            private final int mNewWidth;
+            private final int mNewHeight;
+
+            public Resize(int width, int height) {
+                mNewWidth = width;
+                mNewHeight = height;
+            }
+
+            @Override
+            public void run() {
+                mWidth = mNewWidth;
+                mHeight = mNewHeight;
+                if (mDrawable != null) {
+                    mDrawable.setBounds(0, 0, mWidth, mHeight);
+                    render();
+                }
+            }
+        }
+
+        private class Configure implements Runnable {
+
+            private final boolean mRecreate;
+            private final RadarModel mModel;
+            private final int mMinRadius;
+            private final int mRenderMode;
+            private final float mMaxFrameRate;
+            private final boolean mSweepEnabled;
+            private final BlipLayer mBlipLayer;
+            private final boolean mAnimating;
+            private final boolean mVisible;
+
+            public Configure(boolean recreate, RadarModel model, int minRadius, int renderMode, float maxFrameRate,
+                             boolean sweepEnabled, BlipLayer blipLayer, boolean animating, boolean visible) {
+                mRecreate = recreate;
+                mModel = model;
+                mMinRadius = minRadius;
+                mRenderMode = renderMode;
+                mMaxFrameRate = maxFrameRate;
+                mSweepEnabled = sweepEnabled;
+                mBlipLayer = blipLayer;
+                mAnimating = animating;
+                mVisible = visible;
+            }
+
+            @Override
+            public void run() {
+                if (mRecreate || mDrawable == null) {
+                    if (mDrawable != null) {
+                        mDrawable.stop();
+                        mDrawable.setCallback(null);
+                    }
+                    mDrawable = new RadarDrawable(mModel);
+                    mDrawable.setRefreshRate(mRefreshRate);
+                    mDrawable.setCallback(RenderThread.this);
+                    mDrawable.setBounds(0, 0, mWidth, mHeight);
+                }
+
+                mDrawable.setMinRadius(mMinRadius);
+                mDrawable.setRenderMode(mRenderMode);
+                mDrawable.setMaxFrameRate(mMaxFrameRate);
+                mDrawable.setSweepEnabled(mSweepEnabled);
+                mDrawable.setBlipLayer(mBlipLayer);
+                mDrawable.setVisible(mVisible, false);
+                if (mAnimating) {
+                    mDrawable.start();
+                } else {
+                    mDrawable.stop();
+                }
+                render();
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package bis.radar;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * Shows a {@link RadarDrawable} over its padded bounds and invalidates only the
+ * part the drawable reports through {@link Drawable#getDirtyBounds()}, where
+ * {@link android.widget.ImageView} invalidates the whole view for its drawable.
+ * Like ImageView, it shows and hides the drawable with the view.
+ * <p>
+ * The smaller rect only saves work where the platform honours it: in software
+ * rendered windows, and with hardware acceleration before Lollipop. From API 21
+ * on, the hardware renderer ignores the rect and replays the whole display list
+ * of the view; {@link RadarTextureView} locks only the dirty rect of its surface
+ * and limits the redraw on every API level.
+ */
+public class RadarView extends View {
+
+    private RadarDrawable mRadar;
+
+    public RadarView(Context context) {
+        super(context);
+    }
+
+    public RadarView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public RadarView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+    }
+
+    /**
+     * @param radar drawable to show, {@code null} to show nothing
+     */
+    public void setRadar(RadarDrawable radar) {
+        if (radar == mRadar) {
+            return;
+        }
+
+        if (mRadar != null) {
+            mRadar.setCallback(null);
+            unscheduleDrawable(mRadar);
+        }
+        mRadar = radar;
+        if (radar != null) {
+            radar.setCallback(this);
+            radar.setVisible(getVisibility() == VISIBLE, false);
+            updateBounds();
+        }
+        invalidate();
+    }
+
+    public RadarDrawable getRadar() {
+        return mRadar;
+    }
+
+    @Override
+    protected boolean verifyDrawable(Drawable who) {
+        return who == mRadar || super.verifyDrawable(who);
+    }
+
+    @Override
+    public void invalidateDrawable(Drawable drawable) {
+        if (drawable != mRadar) {
+            super.invalidateDrawable(drawable);
+            return;
+        }
+
+        Rect dirty = drawable.getDirtyBounds();
+        int scrollX = getScrollX();
+        int scrollY = getScrollY();
+        invalidate(dirty.left + scrollX, dirty.top + scrollY, dirty.right + scrollX, dirty.bottom + scrollY);
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        updateBounds();
+    }
+
+    @Override
+    public void setPadding(int left, int top, int right, int bottom) {
+        super.setPadding(left, top, right, bottom);
+        updateBounds();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mRadar != null) {
+            mRadar.draw(canvas);
+        }
+    }
+
+    @Override
+    public void setVisibility(int visibility) {
+        super.setVisibility(visibility);
+        if (mRadar != null) {
+            mRadar.setVisible(visibility == VISIBLE, false);
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (mRadar != null) {
+            mRadar.setVisible(getVisibility() == VISIBLE, false);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (mRadar != null) {
+            mRadar.setVisible(false, false);
+        }
+    }
+
+    private void updateBounds() {
+        if (mRadar != null) {
+            mRadar.setBounds(getPaddingLeft(), getPaddingTop(),
+                    getWidth() - getPaddingRight(), getHeight() - getPaddingBottom());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package bis.radar;
+
+import android.graphics.RadialGradient;
+import android.graphics.Shader;
+
+import java.util.Arrays;
+
+/**
+ * Radial gradients encoding every ring of a {@link RadarModel}, one per display
+ * frame of the model period, built the first time that frame is drawn.
+ * Once warmed up the animation only cycles through cached shaders.
+ */
+class RingShaderCache {
+
+    private final RadarModel mModel;
+    private final GradientBands mBands;
+    private RadarFrame mFrame;
+
+    private RadialGradient[] mShaders;
+    private float mFramesPerMilli;
+    private float mCenterX;
+    private float mCenterY;
+    private float mMinRadius;
+    private float mMaxRadius;
+    private float mOuterRadius;
+    private float mRefreshRate;
+
+    public RingShaderCache(RadarModel model) {
+        mModel = model;
+        mBands = new GradientBands(model.getRingCount());
+    }
+
+    /**
+     * Drops every cached shader, to be called whenever the bounds, the min radius or the refresh rate change.
+     */
+    public void setGeometry(float centerX, float centerY, float minRadius, float maxRadius, float refreshRate) {
+        int frameCount = Math.max(1, Math.round(mModel.getPeriod() * refreshRate / 1000));
+        mFramesPerMilli = frameCount / (float) mModel.getPeriod();
+        mShaders = new RadialGradient[frameCount];
+        if (mFrame == null) {
+            mFrame = new RadarFrame(mModel, refreshRate);
+        } else {
+            mFrame.setRefreshRate(refreshRate);
+        }
+        mCenterX = centerX;
+        mCenterY = centerY;
+        mMinRadius = minRadius;
+        mMaxRadius = maxRadius;
+        mOuterRadius = GradientBands.getOuterRadius(maxRadius, mModel.getStrokeWidth());
+        mRefreshRate = refreshRate;
+    }
+
+    /**
+     * @return {@code true} once a geometry is set
+     */
+    public boolean hasGeometry() {
+        return mShaders != null;
+    }
+
+    public boolean hasGeometry(float centerX, float centerY, float minRadius, float maxRadius, float refreshRate) {
+        return mShaders != null && centerX == mCenterX && centerY == mCenterY && minRadius == mMinRadius
+                && maxRadius == mMaxRadius && refreshRate == mRefreshRate;
+    }
+
+    public float getOuterRadius() {
+        return mOuterRadius;
+    }
+
+    /**
+     * @return the shader for {@code elapsed}, computing the rings only when it is not cached yet
+     */
+    public Shader getShader(long elapsed) {
+        int warmUp = mModel.getWarmUp();
+        if (elapsed < warmUp) {
+            mFrame.update(elapsed, mMinRadius, mMaxRadius);
+            return createShader();
+        }
+
+        int index = (int) ((elapsed - warmUp) % mModel.getPeriod() * mFramesPerMilli) % mShaders.length;
+        RadialGradient shader = mShaders[index];
+        if (shader == null) {
+            mFrame.update(warmUp + (long) (index / mFramesPerMilli), mMinRadius, mMaxRadius);
+            shader = createShader();
+            mShaders[index] = shader;
+        }
+        return shader;
+    }
+
+    private RadialGradient createShader() {
+        mBands.update(mFrame, mOuterRadius);
+        int count = mBands.getCount();
+        return new RadialGradient(mCenterX, mCenterY, mOuterRadius,
+                Arrays.copyOf(mBands.getColors(), count), Arrays.copyOf(mBands.getStops(), count),
+                Shader.TileMode.CLAMP);
+    }
+}
@@ -0,0 +1,227 @@
+package bis.radar;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Paint.Style;
+import android.util.Log;
+
+/**
+ * Pre-rasterized rings of a {@link RadarModel}, one alpha mask per radius bucket
+ * between the min and the max radius, blitted with the ring's current alpha
+ * instead of drawing anti-aliased circles. A sprite only holds the bottom right
+ * quarter of its ring, mirrored four ways and scaled from the bucket radius to the
+ * exact ring radius, so rings move smoothly whatever the bucket size. Sprites are
+ * rendered on first use and never evicted: the bucket count is chosen so that every
+ * sprite fits the byte budget, and when even {@link #MIN_BUCKETS} do not fit the
+ * rings are drawn directly.
+ */
+class RingSpriteCache {
+
+    private static final String TAG = "RingSpriteCache";
+
+    private static final int MAX_BUCKETS = 64;
+    private static final int MIN_BUCKETS = 8;
+
+    private final RadarModel mModel;
+    private final Canvas mCanvas = new Canvas();
+    private final Paint mStrokePaint;
+    private final Paint mFillPaint;
+    private final Paint mSpritePaint;
+
+    private int mMaxBytes;
+    private int mBytes;
+
+    private float mMinRadius;
+    private float mMaxRadius;
+    private float mBucketSize;
+    private boolean mHasGeometry;
+    private Bitmap[] mSprites = new Bitmap[0];
+    private int mHits;
+    private int mMisses;
+
+    public RingSpriteCache(RadarModel model, int maxBytes) {
+        mModel = model;
+        mMaxBytes = maxBytes;
+
+        mStrokePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mStrokePaint.setStyle(Style.STROKE);
+        mStrokePaint.setStrokeWidth(model.getStrokeWidth());
+        mStrokePaint.setAlpha(model.getStrokeAlpha());
+        mFillPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mFillPaint.setStyle(Style.FILL);
+        mFillPaint.setAlpha(model.getFillAlpha());
+        mSpritePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        mSpritePaint.setColor(model.getColor());
+    }
+
+    public int getMaxBytes() {
+        return mMaxBytes;
+    }
+
+    /**
+     * Drops every sprite and picks the bucket count again for the new budget.
+     */
+    public void setMaxBytes(int maxBytes) {
+        if (maxBytes == mMaxBytes) {
+            return;
+        }
+
+        mMaxBytes = maxBytes;
+        if (mHasGeometry) {
+            setGeometry(mMinRadius, mMaxRadius);
+        }
+    }
+
+    /**
+     * Drops every sprite, to be called whenever the min or the max radius change.
+     */
+    public void setGeometry(float minRadius, float maxRadius) {
+        int buckets = Math.max(1, Math.min(MAX_BUCKETS, (int) Math.ceil(maxRadius - minRadius) + 1));
+        while (buckets > MIN_BUCKETS && getBytes(minRadius, maxRadius, buckets) > mMaxBytes) {
+            buckets--;
+        }
+        if (getBytes(minRadius, maxRadius, buckets) > mMaxBytes) {
+            Log.w(TAG, "Ring sprites of " + minRadius + "-" + maxRadius + "px need more than "
+                    + mMaxBytes + " bytes, drawing rings directly");
+            buckets = 0;
+        }
+
+        mHasGeometry = true;
+        mMinRadius = minRadius;
+        mMaxRadius = maxRadius;
+        mBucketSize = buckets > 1 ? (maxRadius - minRadius) / (buckets - 1) : 1;
+        mSprites = new Bitmap[buckets];
+        mBytes = 0;
+        mHits = 0;
+        mMisses = 0;
+    }
+
+    /**
+     * @return {@code true} once a geometry is set
+     */
+    public boolean hasGeometry() {
+        return mHasGeometry;
+    }
+
+    public boolean hasGeometry(float minRadius, float maxRadius) {
+        return mHasGeometry && minRadius == mMinRadius && maxRadius == mMaxRadius;
+    }
+
+    /**
+     * @return number of sprites between the min and the max radius, 0 when they do
+     * not fit the budget and every ring is drawn directly
+     */
+    public int getBucketCount() {
+        return mSprites.length;
+    }
+
+    public float getBucketSize() {
+        return mSprites.length > 0 ? mBucketSize : 0;
+    }
+
+    /**
+     * @return rings blitted from a sprite rendered for an earlier frame, since the geometry was set
+     */
+    public int getHitCount() {
+        return mHits;
+    }
+
+    /**
+     * @return rings that had to render their sprite first, or to be drawn directly
+     */
+    public int getMissCount() {
+        return mMisses;
+    }
+
+    public void clear() {
+        for (int i = 0; i < mSprites.length; i++) {
+            mSprites[i] = null;
+        }
+        mBytes = 0;
+    }
+
+    /**
+     * @return {@code false} if the sprite of that radius does not fit in the budget
+     * and the ring must be drawn directly
+     */
+    public boolean draw(Canvas canvas, float cx, float cy, float radius, float fraction) {
+        if (mSprites.length == 0) {
+            mMisses++;
+            return false;
+        }
+
+        int bucket = Math.min(mSprites.length - 1, Math.max(0, Math.round((radius - mMinRadius) / mBucketSize)));
+        Bitmap sprite = mSprites[bucket];
+        if (sprite == null) {
+            mMisses++;
+            sprite = createSprite(getBucketRadius(bucket));
+            if (sprite == null) {
+                return false;
+            }
+            mSprites[bucket] = sprite;
+        } else {
+            mHits++;
+        }
+
+        float bucketRadius = getBucketRadius(bucket);
+        float scale = bucketRadius > 0 ? radius / bucketRadius : 1;
+        mSpritePaint.setAlpha((int) ((1 - fraction) * 255));
+        canvas.save();
+        canvas.translate(cx, cy);
+        canvas.scale(scale, scale);
+        canvas.drawBitmap(sprite, 0, 0, mSpritePaint);
+        canvas.scale(-1, 1);
+        canvas.drawBitmap(sprite, 0, 0, mSpritePaint);
+        canvas.scale(1, -1);
+        canvas.drawBitmap(sprite, 0, 0, mSpritePaint);
+        canvas.scale(-1, 1);
+        canvas.drawBitmap(sprite, 0, 0, mSpritePaint);
+        canvas.restore();
+        return true;
+    }
+
+    private float getBucketRadius(int bucket) {
+        return mMinRadius + bucket * mBucketSize;
+    }
+
+    private Bitmap createSprite(float radius) {
+        int size = getSpriteSize(radius);
+        if (mBytes + size * size > mMaxBytes) {
+            return null;
+        }
+
+        Bitmap sprite;
+        try {
+            sprite = Bitmap.createBitmap(size, size, Bitmap.Config.ALPHA_8);
+        } catch (OutOfMemoryError e) {
+            return null;
+        }
+
+        // Centered on the top left corner, only the bottom right quarter lands in the sprite.
+        mCanvas.setBitmap(sprite);
+        mCanvas.drawCircle(0, 0, radius, mFillPaint);
+        mCanvas.drawCircle(0, 0, radius, mStrokePaint);
+        mCanvas.setBitmap(null);
+
+        mBytes += size * size;
+        return sprite;
+    }
+
+    private int getSpriteSize(float radius) {
+        return (int) Math.ceil(radius + mModel.getStrokeWidth() / 2 + 1);
+    }
+
+    /**
+     * @return bytes taken by the ALPHA_8 sprites of every bucket
+     */
+    private long getBytes(float minRadius, float maxRadius, int buckets) {
+        float bucketSize = buckets > 1 ? (maxRadius - minRadius) / (buckets - 1) : 1;
+        long bytes = 0;
+        for (int i = 0; i < buckets; i++) {
+            long size = getSpriteSize(minRadius + i * bucketSize);
+            bytes += size * size;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,80 @@
+package bis.radar;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Times the phases of a startup as marks relative to the start of the trace.
+ * Phases may be marked from any thread.
+ */
+public final class StartupTrace {
+
+    private final long mStartNanos;
+    private String[] mPhases = new String[8];
+    private long[] mNanos = new long[8];
+    private int mCount;
+
+    public StartupTrace() {
+        this(System.nanoTime());
+    }
+
+    public StartupTrace(long startNanos) {
+        mStartNanos = startNanos;
+    }
+
+    public void mark(String phase) {
+        mark(phase, System.nanoTime());
+    }
+
+    public synchronized void mark(String phase, long nanos) {
+        if (mCount == mPhases.length) {
+            mPhases = Arrays.copyOf(mPhases, mCount * 2);
+            mNanos = Arrays.copyOf(mNanos, mCount * 2);
+        }
+        mPhases[mCount] = phase;
+        mNanos[mCount] = nanos - mStartNanos;
+        mCount++;
+    }
+
+    public synchronized boolean hasPhase(String phase) {
+        return indexOf(phase) >= 0;
+    }
+
+    /**
+     * @return milliseconds from the start of the trace to the first mark of {@code phase}, or -1 if it is not marked
+     */
+    public synchronized float getMillis(String phase) {
+        int index = indexOf(phase);
+        return index < 0 ? -1 : mNanos[index] / 1000000f;
+    }
+
+    /**
+     * @return milliseconds from the first mark of {@code from} to the first mark of {@code to}, or -1 if either is not marked
+     */
+    public synchronized float getMillis(String from, String to) {
+        int start = indexOf(from);
+        int end = indexOf(to);
+        return start < 0 || end < 0 ? -1 : (mNanos[end] - mNanos[start]) / 1000000f;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder("StartupTrace{");
+        for (int i = 0; i < mCount; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(mPhases[i]).append(String.format(Locale.US, " +%.1f ms", mNanos[i] / 1000000f));
+        }
+        return builder.append('}').toString();
+    }
+
+    private int indexOf(String phase) {
+        for (int i = 0; i < mCount; i++) {
+            if (mPhases[i].equals(phase)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
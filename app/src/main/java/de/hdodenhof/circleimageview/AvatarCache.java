@@ -0,0 +1,104 @@
+package de.hdodenhof.circleimageview;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.util.Log;
+import android.util.LruCache;
+
+/**
+ * Circular avatars cropped and scaled down from their source bitmaps to the diameter
+ * they are shown at, so that a {@link CircleImageView} can draw them with a plain blit
+ * and does not have to keep the full-size source alive. Must be used from the UI thread.
+ */
+public final class AvatarCache {
+
+    private static final String TAG = "AvatarCache";
+
+    private static AvatarCache sInstance;
+
+    private final LruCache<String, Bitmap> mAvatars;
+    private final CircleGeometry mGeometry = new CircleGeometry();
+    private final Matrix mMatrix = new Matrix();
+    private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+
+    public static AvatarCache getInstance() {
+        if (sInstance == null) {
+            sInstance = new AvatarCache((int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 16));
+        }
+        return sInstance;
+    }
+
+    AvatarCache(int maxBytes) {
+        mAvatars = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+    }
+
+    /**
+     * @return the avatar of that source at that diameter, or {@code null} if it is not cached
+     */
+    public Bitmap get(String key, int diameter) {
+        return mAvatars.get(getKey(key, diameter));
+    }
+
+    /**
+     * @return the avatar of that source at that diameter, cut out of {@code source} if it is not cached yet,
+     * or {@code null} if there is not enough memory for it
+     */
+    public Bitmap obtain(String key, Bitmap source, int diameter) {
+        String avatarKey = getKey(key, diameter);
+        Bitmap avatar = mAvatars.get(avatarKey);
+        if (avatar != null) {
+            return avatar;
+        }
+
+        try {
+            avatar = Bitmap.createBitmap(diameter, diameter, Bitmap.Config.ARGB_8888);
+        } catch (OutOfMemoryError e) {
+            Log.w(TAG, "Not enough memory for a " + diameter + "px avatar", e);
+            return null;
+        }
+
+        mGeometry.setBounds(diameter, diameter, 0, false);
+        mGeometry.setBitmapSize(source.getWidth(), source.getHeight());
+        mMatrix.setScale(mGeometry.getScale(), mGeometry.getScale());
+        mMatrix.postTranslate(mGeometry.getTranslateX(), mGeometry.getTranslateY());
+
+        BitmapShader shader = new BitmapShader(source, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+        shader.setLocalMatrix(mMatrix);
+        mPaint.setShader(shader);
+        new Canvas(avatar).drawCircle(diameter / 2f, diameter / 2f, diameter / 2f, mPaint);
+        mPaint.setShader(null);
+
+        mAvatars.put(avatarKey, avatar);
+        return avatar;
+    }
+
+    /**
+     * Drops the avatars of that source at every diameter, to be called when the source
+     * behind a key changes.
+     */
+    public void remove(String key) {
+        String prefix = key + '@';
+        for (String avatarKey : mAvatars.snapshot().keySet()) {
+            if (avatarKey.startsWith(prefix) && avatarKey.indexOf('@', prefix.length()) < 0) {
+                mAvatars.remove(avatarKey);
+            }
+        }
+    }
+
+    public void clear() {
+        mAvatars.evictAll();
+    }
+
+    private static String getKey(String key, int diameter) {
+        return key + '@' + diameter;
+    }
+}
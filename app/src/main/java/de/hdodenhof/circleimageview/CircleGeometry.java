@@ -0,0 +1,114 @@
+package de.hdodenhof.circleimageview;
+
+/**
+ * Circle, border and center-crop shader geometry of a {@link CircleImageView},
+ * recomputed only when the view size, the border or the bitmap size change.
+ */
+final class CircleGeometry {
+
+    private int mWidth = -1;
+    private int mHeight = -1;
+    private int mBorderWidth;
+    private boolean mBorderOverlay;
+    private int mBitmapWidth = -1;
+    private int mBitmapHeight = -1;
+
+    private float mBorderRadius;
+    private float mDrawableLeft;
+    private float mDrawableTop;
+    private float mDrawableWidth;
+    private float mDrawableHeight;
+    private float mDrawableRadius;
+
+    private float mScale;
+    private float mTranslateX;
+    private float mTranslateY;
+
+    /**
+     * @return {@code true} if the circle or the shader matrix changed
+     */
+    public boolean setBounds(int width, int height, int borderWidth, boolean borderOverlay) {
+        if (width == mWidth && height == mHeight && borderWidth == mBorderWidth && borderOverlay == mBorderOverlay) {
+            return false;
+        }
+
+        mWidth = width;
+        mHeight = height;
+        mBorderWidth = borderWidth;
+        mBorderOverlay = borderOverlay;
+
+        mBorderRadius = Math.min((height - borderWidth) / 2f, (width - borderWidth) / 2f);
+
+        int inset = borderOverlay ? 0 : borderWidth;
+        mDrawableLeft = inset;
+        mDrawableTop = inset;
+        mDrawableWidth = width - 2 * inset;
+        mDrawableHeight = height - 2 * inset;
+        mDrawableRadius = Math.min(mDrawableHeight / 2, mDrawableWidth / 2);
+
+        updateMatrix();
+        return true;
+    }
+
+    /**
+     * @return {@code true} if the shader matrix changed
+     */
+    public boolean setBitmapSize(int bitmapWidth, int bitmapHeight) {
+        if (bitmapWidth == mBitmapWidth && bitmapHeight == mBitmapHeight) {
+            return false;
+        }
+
+        mBitmapWidth = bitmapWidth;
+        mBitmapHeight = bitmapHeight;
+        updateMatrix();
+        return true;
+    }
+
+    private void updateMatrix() {
+        if (mBitmapWidth <= 0 || mBitmapHeight <= 0) {
+            return;
+        }
+
+        float dx = 0;
+        float dy = 0;
+
+        if (mBitmapWidth * mDrawableHeight > mDrawableWidth * mBitmapHeight) {
+            mScale = mDrawableHeight / (float) mBitmapHeight;
+            dx = (mDrawableWidth - mBitmapWidth * mScale) * 0.5f;
+        } else {
+            mScale = mDrawableWidth / (float) mBitmapWidth;
+            dy = (mDrawableHeight - mBitmapHeight * mScale) * 0.5f;
+        }
+
+        mTranslateX = (int) (dx + 0.5f) + mDrawableLeft;
+        mTranslateY = (int) (dy + 0.5f) + mDrawableTop;
+    }
+
+    public float getBorderRadius() {
+        return mBorderRadius;
+    }
+
+    public float getDrawableRadius() {
+        return mDrawableRadius;
+    }
+
+    public float getDrawableWidth() {
+        return mDrawableWidth;
+    }
+
+    public float getDrawableHeight() {
+        return mDrawableHeight;
+    }
+
+    public float getScale() {
+        return mScale;
+    }
+
+    public float getTranslateX() {
+        return mTranslateX;
+    }
+
+    public float getTranslateY() {
+        return mTranslateY;
+    }
+}
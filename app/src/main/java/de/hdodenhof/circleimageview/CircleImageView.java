@@ -1,5 +1,6 @@
 package de.hdodenhof.circleimageview;
 
+import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Bitmap;
@@ -8,37 +9,47 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.ColorFilter;
 import android.graphics.Matrix;
+import android.graphics.Outline;
 import android.graphics.Paint;
-import android.graphics.RectF;
+import android.graphics.Path;
+import android.graphics.PixelFormat;
 import android.graphics.Shader;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
+import android.os.Build;
 import android.support.annotation.ColorRes;
 import android.support.annotation.DrawableRes;
 import android.support.annotation.NonNull;
 import android.support.v4.content.ContextCompat;
 import android.util.AttributeSet;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewOutlineProvider;
 import android.widget.ImageView;
 
 import bis.radar.R;
 
 public class CircleImageView extends ImageView {
 
+    private static final String TAG = "CircleImageView";
+
     private static final ScaleType SCALE_TYPE = ScaleType.CENTER_CROP;
 
     private static final Bitmap.Config BITMAP_CONFIG = Bitmap.Config.ARGB_8888;
+    private static final Bitmap.Config OPAQUE_BITMAP_CONFIG = Bitmap.Config.RGB_565;
     private static final int COLORDRAWABLE_DIMENSION = 2;
 
     private static final int DEFAULT_BORDER_WIDTH = 0;
     private static final int DEFAULT_BORDER_COLOR = Color.BLACK;
     private static final boolean DEFAULT_BORDER_OVERLAY = false;
+    private static final boolean DEFAULT_DIRECT_CLIP = true;
 
-    private final RectF mDrawableRect = new RectF();
-    private final RectF mBorderRect = new RectF();
+    private final CircleGeometry mGeometry = new CircleGeometry();
 
     private final Matrix mShaderMatrix = new Matrix();
     private final Paint mBitmapPaint = new Paint();
+    private final Paint mAvatarPaint = new Paint();
     private final Paint mBorderPaint = new Paint();
 
     private int mBorderColor = DEFAULT_BORDER_COLOR;
@@ -46,17 +57,21 @@ public class CircleImageView extends ImageView {
 
     private Bitmap mBitmap;
     private BitmapShader mBitmapShader;
-    private int mBitmapWidth;
-    private int mBitmapHeight;
-
-    private float mDrawableRadius;
-    private float mBorderRadius;
+    private Drawable mRasterizedDrawable;
+    private String mAvatarKey;
+    private BitmapDrawable mAvatarDrawable;
+    private boolean mAvatarBlit;
 
     private ColorFilter mColorFilter;
 
     private boolean mReady;
     private boolean mSetupPending;
     private boolean mBorderOverlay;
+    private boolean mDirectClip = DEFAULT_DIRECT_CLIP;
+    private boolean mClipping;
+    private int mClipWidth;
+    private int mClipHeight;
+    private final Path mClipPath = new Path();
 
     public CircleImageView(Context context) {
         super(context);
@@ -75,6 +90,7 @@ public class CircleImageView extends ImageView {
         mBorderWidth = a.getDimensionPixelSize(R.styleable.CircleImageView_border_width, DEFAULT_BORDER_WIDTH);
         mBorderColor = a.getColor(R.styleable.CircleImageView_border_color, DEFAULT_BORDER_COLOR);
         mBorderOverlay = a.getBoolean(R.styleable.CircleImageView_border_overlay, DEFAULT_BORDER_OVERLAY);
+        mDirectClip = a.getBoolean(R.styleable.CircleImageView_direct_clip, DEFAULT_DIRECT_CLIP);
 
         a.recycle();
 
@@ -83,6 +99,17 @@ public class CircleImageView extends ImageView {
 
     private void init() {
         super.setScaleType(SCALE_TYPE);
+
+        mBitmapPaint.setAntiAlias(true);
+        mBorderPaint.setStyle(Paint.Style.STROKE);
+        mBorderPaint.setAntiAlias(true);
+        mBorderPaint.setColor(mBorderColor);
+        mBorderPaint.setStrokeWidth(mBorderWidth);
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            setOutlineProvider(new CircleOutlineProvider());
+        }
+
         mReady = true;
 
         if (mSetupPending) {
@@ -116,10 +143,26 @@ public class CircleImageView extends ImageView {
             return;
         }
 
-        canvas.drawCircle(getWidth() / 2, getHeight() / 2, mDrawableRadius, mBitmapPaint);
+        if (mClipping) {
+            drawClipped(canvas);
+        } else if (mAvatarBlit) {
+            canvas.drawBitmap(mBitmap, (getWidth() - mBitmap.getWidth()) / 2, (getHeight() - mBitmap.getHeight()) / 2, mAvatarPaint);
+        } else {
+            canvas.drawCircle(getWidth() / 2, getHeight() / 2, mGeometry.getDrawableRadius(), mBitmapPaint);
+        }
         if (mBorderWidth != 0) {
-            canvas.drawCircle(getWidth() / 2, getHeight() / 2, mBorderRadius, mBorderPaint);
+            canvas.drawCircle(getWidth() / 2, getHeight() / 2, mGeometry.getBorderRadius(), mBorderPaint);
+        }
+    }
+
+    private void drawClipped(Canvas canvas) {
+        int saveCount = canvas.save();
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            canvas.clipPath(mClipPath);
         }
+        canvas.concat(mShaderMatrix);
+        getDrawable().draw(canvas);
+        canvas.restoreToCount(saveCount);
     }
 
     @Override
@@ -128,6 +171,14 @@ public class CircleImageView extends ImageView {
         setup();
     }
 
+    @Override
+    protected boolean setFrame(int l, int t, int r, int b) {
+        boolean changed = super.setFrame(l, t, r, b);
+        // ImageView lays its drawable out again after onSizeChanged.
+        updateClipBounds();
+        return changed;
+    }
+
     public int getBorderColor() {
         return mBorderColor;
     }
@@ -156,6 +207,7 @@ public class CircleImageView extends ImageView {
         }
 
         mBorderWidth = borderWidth;
+        mBorderPaint.setStrokeWidth(mBorderWidth);
         setup();
     }
 
@@ -172,26 +224,57 @@ public class CircleImageView extends ImageView {
         setup();
     }
 
+    public boolean isDirectClip() {
+        return mDirectClip;
+    }
+
+    /**
+     * @param directClip {@code true} to draw drawables other than a {@link BitmapDrawable} live, clipped
+     *                   to the circle, {@code false} to rasterize them into a bitmap first
+     */
+    public void setDirectClip(boolean directClip) {
+        if (directClip == mDirectClip) {
+            return;
+        }
+
+        mDirectClip = directClip;
+        setup();
+    }
+
+    /**
+     * Shows {@code bm} through the shared {@link AvatarCache}: it is cropped and scaled down to the
+     * circle once, and only the small avatar is kept. {@code key} identifies the source, e.g. its URI.
+     */
+    public void setImageAvatar(@NonNull String key, Bitmap bm) {
+        mAvatarKey = key;
+        super.setImageDrawable(bm != null ? new BitmapDrawable(getResources(), bm) : null);
+        setup();
+    }
+
     @Override
     public void setImageBitmap(Bitmap bm) {
+        mAvatarKey = null;
         super.setImageBitmap(bm);
         setup();
     }
 
     @Override
     public void setImageDrawable(Drawable drawable) {
+        mAvatarKey = null;
         super.setImageDrawable(drawable);
         setup();
     }
 
     @Override
     public void setImageResource(@DrawableRes int resId) {
+        mAvatarKey = null;
         super.setImageResource(resId);
         setup();
     }
 
     @Override
     public void setImageURI(Uri uri) {
+        mAvatarKey = null;
         super.setImageURI(uri);
         setup();
     }
@@ -204,9 +287,22 @@ public class CircleImageView extends ImageView {
 
         mColorFilter = cf;
         mBitmapPaint.setColorFilter(mColorFilter);
+        mAvatarPaint.setColorFilter(mColorFilter);
+        if (mClipping) {
+            applyColorFilter(getDrawable());
+        }
         invalidate();
     }
 
+    /**
+     * Drawables drawn clipped bypass the bitmap paint and take the filter themselves.
+     */
+    private void applyColorFilter(Drawable drawable) {
+        // Do not filter other users of the drawable's constant state.
+        drawable.mutate();
+        drawable.setColorFilter(mColorFilter);
+    }
+
     private Bitmap getBitmapFromDrawable(Drawable drawable) {
         if (drawable == null) {
             return null;
@@ -216,29 +312,38 @@ public class CircleImageView extends ImageView {
             return ((BitmapDrawable) drawable).getBitmap();
         }
 
-        try {
-            int width = drawable.getIntrinsicWidth();
-            int height = drawable.getIntrinsicHeight();
-
-            if (width <= 0 || height <= 0) {
-                width = getWidth();
-                height = getHeight();
-            }
+        int width = drawable.getIntrinsicWidth();
+        int height = drawable.getIntrinsicHeight();
 
-            if (width <= 0 || height <= 0) {
-                return null;
-            }
+        if (width <= 0 || height <= 0) {
+            width = getWidth();
+            height = getHeight();
+        }
 
-            Bitmap bitmap = Bitmap.createBitmap(width, height, BITMAP_CONFIG);
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
 
-            Canvas canvas = new Canvas(bitmap);
-            drawable.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
-            drawable.draw(canvas);
+        if (drawable == mRasterizedDrawable && mBitmap != null
+                && mBitmap.getWidth() == width && mBitmap.getHeight() == height) {
+            return mBitmap;
+        }
 
-            return bitmap;
+        Bitmap.Config config = drawable.getOpacity() == PixelFormat.OPAQUE ? OPAQUE_BITMAP_CONFIG : BITMAP_CONFIG;
+        Bitmap bitmap;
+        try {
+            bitmap = Bitmap.createBitmap(width, height, config);
         } catch (OutOfMemoryError e) {
+            Log.w(TAG, "Not enough memory to rasterize " + drawable, e);
             return null;
         }
+
+        Canvas canvas = new Canvas(bitmap);
+        drawable.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
+        drawable.draw(canvas);
+
+        mRasterizedDrawable = drawable;
+        return bitmap;
     }
 
     private void setup() {
@@ -247,56 +352,141 @@ public class CircleImageView extends ImageView {
             return;
         }
 
-        mBitmap = getBitmapFromDrawable(getDrawable());
-
-        if (mBitmap == null) {
+        Drawable drawable = getDrawable();
+        if (mDirectClip && drawable != null && !(drawable instanceof BitmapDrawable)) {
+            setupClip(drawable);
             return;
         }
 
-        mBitmapShader = new BitmapShader(mBitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+        boolean changed = mGeometry.setBounds(getWidth(), getHeight(), mBorderWidth, mBorderOverlay);
+        int diameter = (int) (2 * mGeometry.getDrawableRadius());
+        if (mAvatarKey != null && drawable instanceof BitmapDrawable && diameter > 0) {
+            Bitmap source = ((BitmapDrawable) drawable).getBitmap();
+            Bitmap avatar;
+            if (drawable == mAvatarDrawable && diameter > source.getWidth()) {
+                // The full-size source is gone, an avatar scaled up from the small one would be
+                // cached as if it were sharp. Use a sharp one if cached, else scale the small one.
+                avatar = AvatarCache.getInstance().get(mAvatarKey, diameter);
+            } else {
+                avatar = AvatarCache.getInstance().obtain(mAvatarKey, source, diameter);
+            }
+            if (avatar != null && (drawable != mAvatarDrawable || mAvatarDrawable.getBitmap() != avatar)) {
+                // Let go of the full-size source, the avatar is all that is drawn.
+                mAvatarDrawable = new BitmapDrawable(getResources(), avatar);
+                super.setImageDrawable(mAvatarDrawable);
+                drawable = mAvatarDrawable;
+            }
+        }
 
-        mBitmapPaint.setAntiAlias(true);
-        mBitmapPaint.setShader(mBitmapShader);
+        Bitmap bitmap = getBitmapFromDrawable(drawable);
 
-        mBorderPaint.setStyle(Paint.Style.STROKE);
-        mBorderPaint.setAntiAlias(true);
-        mBorderPaint.setColor(mBorderColor);
-        mBorderPaint.setStrokeWidth(mBorderWidth);
+        if (bitmap == null) {
+            return;
+        }
 
-        mBitmapHeight = mBitmap.getHeight();
-        mBitmapWidth = mBitmap.getWidth();
+        changed |= setClipping(false);
+        boolean avatarBlit = mAvatarKey != null && drawable == mAvatarDrawable && bitmap.getWidth() == diameter;
+        if (avatarBlit != mAvatarBlit) {
+            mAvatarBlit = avatarBlit;
+            changed = true;
+        }
 
-        mBorderRect.set(0, 0, getWidth(), getHeight());
-        mBorderRadius = Math.min((mBorderRect.height() - mBorderWidth) / 2, (mBorderRect.width() - mBorderWidth) / 2);
+        if (bitmap != mBitmap || mBitmapShader == null) {
+            mBitmap = bitmap;
+            mBitmapShader = new BitmapShader(mBitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+            mBitmapPaint.setShader(mBitmapShader);
+            changed = true;
+        }
 
-        mDrawableRect.set(mBorderRect);
-        if (!mBorderOverlay) {
-            mDrawableRect.inset(mBorderWidth, mBorderWidth);
+        changed |= mGeometry.setBitmapSize(mBitmap.getWidth(), mBitmap.getHeight());
+
+        if (changed) {
+            updateShaderMatrix();
+            invalidate();
         }
-        mDrawableRadius = Math.min(mDrawableRect.height() / 2, mDrawableRect.width() / 2);
+    }
 
-        updateShaderMatrix();
-        invalidate();
+    private void setupClip(Drawable drawable) {
+        if (mBitmap != null) {
+            mBitmap = null;
+            mBitmapShader = null;
+            mBitmapPaint.setShader(null);
+        }
+        mRasterizedDrawable = null;
+        mAvatarDrawable = null;
+        mAvatarBlit = false;
+        if (mColorFilter != null) {
+            applyColorFilter(drawable);
+        }
+
+        boolean changed = setClipping(true);
+        changed |= mGeometry.setBounds(getWidth(), getHeight(), mBorderWidth, mBorderOverlay);
+
+        int width = drawable.getIntrinsicWidth();
+        int height = drawable.getIntrinsicHeight();
+        if (width <= 0 || height <= 0) {
+            // No intrinsic size (e.g. a color), the drawable fills the area inside the border.
+            width = Math.max(1, (int) mGeometry.getDrawableWidth());
+            height = Math.max(1, (int) mGeometry.getDrawableHeight());
+        }
+        changed |= mGeometry.setBitmapSize(width, height);
+
+        mClipWidth = width;
+        mClipHeight = height;
+        updateClipBounds();
+
+        if (changed) {
+            mShaderMatrix.setScale(mGeometry.getScale(), mGeometry.getScale());
+            mShaderMatrix.postTranslate(mGeometry.getTranslateX(), mGeometry.getTranslateY());
+            mClipPath.rewind();
+            mClipPath.addCircle(getWidth() / 2, getHeight() / 2, mGeometry.getDrawableRadius(), Path.Direction.CW);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                invalidateOutline();
+            }
+            invalidate();
+        }
     }
 
-    private void updateShaderMatrix() {
-        float scale;
-        float dx = 0;
-        float dy = 0;
+    /**
+     * Lays out the drawable drawn clipped in its own coordinates, scaled and centered by
+     * {@link #mShaderMatrix}; ImageView's layout of it is only meant for its own draw pass.
+     */
+    private void updateClipBounds() {
+        Drawable drawable = getDrawable();
+        if (mClipping && drawable != null) {
+            drawable.setBounds(0, 0, mClipWidth, mClipHeight);
+        }
+    }
 
-        mShaderMatrix.set(null);
+    private boolean setClipping(boolean clipping) {
+        if (clipping == mClipping) {
+            return false;
+        }
 
-        if (mBitmapWidth * mDrawableRect.height() > mDrawableRect.width() * mBitmapHeight) {
-            scale = mDrawableRect.height() / (float) mBitmapHeight;
-            dx = (mDrawableRect.width() - mBitmapWidth * scale) * 0.5f;
-        } else {
-            scale = mDrawableRect.width() / (float) mBitmapWidth;
-            dy = (mDrawableRect.height() - mBitmapHeight * scale) * 0.5f;
+        mClipping = clipping;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            setClipToOutline(clipping);
         }
+        return true;
+    }
 
-        mShaderMatrix.setScale(scale, scale);
-        mShaderMatrix.postTranslate((int) (dx + 0.5f) + mDrawableRect.left, (int) (dy + 0.5f) + mDrawableRect.top);
+    private void updateShaderMatrix() {
+        mShaderMatrix.setScale(mGeometry.getScale(), mGeometry.getScale());
+        mShaderMatrix.postTranslate(mGeometry.getTranslateX(), mGeometry.getTranslateY());
 
         mBitmapShader.setLocalMatrix(mShaderMatrix);
     }
-}
\ No newline at end of file
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private class CircleOutlineProvider extends ViewOutlineProvider {
+
+        @Override
+        public void getOutline(View view, Outline outline) {
+            // The border is drawn outside the clipped drawable and has to stay inside the outline too.
+            float radius = Math.max(mGeometry.getDrawableRadius(), mGeometry.getBorderRadius() + mBorderWidth / 2f);
+            int cx = getWidth() / 2;
+            int cy = getHeight() / 2;
+            outline.setOval((int) (cx - radius), (int) (cy - radius), (int) Math.ceil(cx + radius), (int) Math.ceil(cy + radius));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package bis.radar;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BlipIndexTest {
+
+    @Test
+    public void build_sortsBlipsIntoTheirBuckets() throws Exception {
+        int count = 5000;
+        float[] bearings = new float[count];
+        float[] distances = new float[count];
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            bearings[i] = random.nextFloat() * 720 - 360;
+            distances[i] = random.nextFloat();
+        }
+
+        BlipIndex index = BlipIndex.build(36, 8, bearings, distances, count);
+        assertEquals(count, index.size());
+
+        int visited = 0;
+        for (int sector = 0; sector < index.getSectorCount(); sector++) {
+            for (int band = 0; band < index.getBandCount(); band++) {
+                for (int position = index.getStart(sector, band); position < index.getEnd(sector, band); position++) {
+                    int id = index.getId(position);
+                    assertEquals(sector, BlipIndex.getSector(bearings[id], 36));
+                    assertEquals(band, (int) (distances[id] * 8));
+                    double radians = Math.toRadians(bearings[id]);
+                    assertEquals(Math.cos(radians) * distances[id], index.getX(position), 1e-5);
+                    assertEquals(Math.sin(radians) * distances[id], index.getY(position), 1e-5);
+                    visited++;
+                }
+            }
+        }
+        assertEquals(count, visited);
+    }
+
+    @Test
+    public void build_leavesOutBlipsOffTheRadar() throws Exception {
+        BlipIndex index = BlipIndex.build(4, 4, new float[]{0, 90, 180}, new float[]{0.5f, 1.5f, Float.NaN}, 3);
+        assertEquals(1, index.size());
+        assertEquals(0, index.getId(0));
+    }
+
+    @Test
+    public void commit_publishesIncrementalUpdates() throws Exception {
+        BlipLayer layer = new BlipLayer(8, 4);
+        assertEquals(0, layer.getIndex().size());
+
+        int first = layer.addBlip(10, 0.1f);
+        int second = layer.addBlip(200, 0.9f);
+        assertEquals(0, layer.getIndex().size());
+        assertEquals(2, layer.commit().size());
+
+        layer.removeBlip(first);
+        layer.moveBlip(second, 100, 0.3f);
+        BlipIndex index = layer.commit();
+        assertSame(index, layer.getIndex());
+        assertEquals(1, index.size());
+        assertEquals(1, index.getEnd(2, 1) - index.getStart(2, 1));
+
+        assertEquals(first, layer.addBlip(0, 0));
+        assertEquals(2, layer.commit().size());
+    }
+}
@@ -0,0 +1,49 @@
+package bis.radar;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FlipbookPlanTest {
+
+    private static final RadarModel MODEL = RadarModel.getDefault();
+
+    @Test
+    public void create_rendersEveryDisplayFrameWhenTheBudgetAllows() throws Exception {
+        FlipbookPlan plan = FlipbookPlan.create(MODEL, 500, 60, 64 * 1024 * 1024);
+        assertTrue(plan.isPrerendered());
+        assertEquals(60, plan.getFrameCount());
+        assertEquals(1, plan.getScale());
+        assertEquals(60L * 500 * 500, plan.getBytes());
+    }
+
+    @Test
+    public void create_dropsFramesThenResolution() throws Exception {
+        FlipbookPlan fewerFrames = FlipbookPlan.create(MODEL, 500, 60, 40 * 500 * 500);
+        assertEquals(40, fewerFrames.getFrameCount());
+        assertEquals(1, fewerFrames.getScale());
+
+        FlipbookPlan halfResolution = FlipbookPlan.create(MODEL, 500, 60, 20 * 500 * 500);
+        assertEquals(60, halfResolution.getFrameCount());
+        assertEquals(2, halfResolution.getScale());
+        assertTrue(halfResolution.getBytes() <= 20 * 500 * 500);
+    }
+
+    @Test
+    public void create_fallsBackToLiveDrawing() throws Exception {
+        FlipbookPlan plan = FlipbookPlan.create(MODEL, 500, 60, 500 * 500);
+        assertFalse(plan.isPrerendered());
+        assertEquals("FlipbookPlan{live}", plan.toString());
+    }
+
+    @Test
+    public void getFrame_coversThePeriod() throws Exception {
+        FlipbookPlan plan = FlipbookPlan.create(MODEL, 100, 60, 64 * 1024 * 1024);
+        assertEquals(0, plan.getFrame(0));
+        assertEquals(plan.getFrameCount() - 1, plan.getFrame(plan.getPeriod() - 1));
+        assertEquals(0, plan.getFrame(plan.getPeriod()));
+        for (int i = 0; i < plan.getFrameCount(); i++) {
+            assertEquals(i, plan.getFrame(plan.getFrameTime(i)));
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package bis.radar;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FrameStatsTest {
+
+    private static final long MS = 1000000L;
+
+    @Test
+    public void getBucket_isFineUpTo16msAndCoarseUpTo64ms() throws Exception {
+        assertEquals(0, FrameStats.getBucket(0));
+        assertEquals(0, FrameStats.getBucket(249999));
+        assertEquals(1, FrameStats.getBucket(250000));
+        assertEquals(64, FrameStats.getBucket(16 * MS));
+        assertEquals(111, FrameStats.getBucket(64 * MS - 1));
+        assertEquals(112, FrameStats.getBucket(500 * MS));
+        for (int i = 0; i < 112; i++) {
+            assertEquals(i, FrameStats.getBucket(FrameStats.getBucketLimit(i) - 1));
+        }
+    }
+
+    @Test
+    public void snapshot_reportsPercentilesAndRates() throws Exception {
+        FrameStats stats = new FrameStats();
+        stats.reset(0);
+        for (int i = 0; i < 98; i++) {
+            stats.recordDraw(0, 2 * MS + 100);
+        }
+        stats.recordDraw(0, 10 * MS);
+        stats.recordDraw(0, 100 * MS);
+        for (int i = 0; i < 30; i++) {
+            stats.recordInvalidation();
+        }
+
+        FrameStats.Snapshot snapshot = stats.snapshot(2000 * MS);
+        assertEquals(100, snapshot.getDrawCount());
+        assertEquals(2250000L, snapshot.getPercentileNanos(50));
+        assertEquals(2250000L, snapshot.getPercentileNanos(95));
+        assertEquals(10250000L, snapshot.getPercentileNanos(99));
+        assertEquals(100 * MS, snapshot.getPercentileNanos(100));
+        assertEquals(15f, snapshot.getInvalidationsPerSecond(), 1e-3f);
+        assertEquals(50f, snapshot.getDrawsPerSecond(), 1e-3f);
+    }
+
+    @Test
+    public void recordFrame_countsMissedVsyncs() throws Exception {
+        FrameStats stats = new FrameStats();
+        long vsync = 16666667L;
+        stats.recordFrame(vsync, vsync, vsync);
+        stats.recordFrame(2 * vsync + 3 * MS, vsync + 3 * MS, vsync);
+        assertEquals(0, stats.snapshot().getSkippedFrameCount());
+
+        stats.recordFrame(5 * vsync + 3 * MS, 3 * vsync, vsync);
+        assertEquals(2, stats.snapshot().getSkippedFrameCount());
+    }
+
+    @Test
+    public void recordFrame_countsAMissedVsyncOnceForAllDrawables() throws Exception {
+        FrameStats stats = new FrameStats();
+        long vsync = 16666667L;
+        for (int drawable = 0; drawable < 10; drawable++) {
+            stats.recordFrame(vsync, vsync, vsync);
+        }
+        for (int drawable = 0; drawable < 10; drawable++) {
+            stats.recordFrame(4 * vsync, 3 * vsync, vsync);
+        }
+        assertEquals(2, stats.snapshot().getSkippedFrameCount());
+    }
+
+    @Test
+    public void listener_losesNoDrawAcrossThreads() throws Exception {
+        final List<FrameStats.Snapshot> snapshots = new ArrayList<>();
+        final FrameStats stats = new FrameStats();
+        stats.reset(0);
+        stats.setListener(new FrameStats.Listener() {
+            @Override
+            public void onFrameStats(FrameStats.Snapshot snapshot) {
+                synchronized (snapshots) {
+                    snapshots.add(snapshot);
+                }
+            }
+        }, 1);
+
+        final int draws = 100000;
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (long t = 0; t < draws; t++) {
+                        stats.recordDraw(t * 1000, t * 1000 + 500);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long total = stats.snapshot().getDrawCount();
+        for (FrameStats.Snapshot snapshot : snapshots) {
+            total += snapshot.getDrawCount();
+        }
+        assertEquals(threads.length * draws, total);
+    }
+
+    @Test
+    public void listener_receivesEachWindowOnce() throws Exception {
+        final List<FrameStats.Snapshot> snapshots = new ArrayList<>();
+        FrameStats stats = new FrameStats();
+        stats.reset(0);
+        stats.setListener(new FrameStats.Listener() {
+            @Override
+            public void onFrameStats(FrameStats.Snapshot snapshot) {
+                snapshots.add(snapshot);
+            }
+        }, 1000);
+
+        for (long t = 0; t < 2500 * MS; t += 16 * MS) {
+            stats.recordDraw(t, t + MS);
+        }
+        assertEquals(2, snapshots.size());
+        assertEquals(64, snapshots.get(0).getDrawCount());
+        assertTrue(stats.snapshot(2500 * MS).getDrawCount() < 64);
+    }
+}
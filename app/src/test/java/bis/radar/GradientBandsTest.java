@@ -0,0 +1,47 @@
+package bis.radar;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GradientBandsTest {
+
+    @Test
+    public void update_encodesEveryRingInOrderedStops() throws Exception {
+        RadarModel model = new RadarModel.Builder().setRingCount(6).setStagger(500).build();
+        RadarFrame frame = new RadarFrame(model, 60);
+        GradientBands bands = new GradientBands(model.getRingCount());
+        float outerRadius = GradientBands.getOuterRadius(300, model.getStrokeWidth());
+
+        for (long elapsed = 0; elapsed < 10000; elapsed += 16) {
+            frame.update(elapsed, 50, 300);
+            bands.update(frame, outerRadius);
+
+            assertEquals(frame.getCount() * 4 + 2, bands.getCount());
+            assertEquals(0f, bands.getStops()[0], 0f);
+            assertEquals(1f, bands.getStops()[bands.getCount() - 1], 0f);
+            assertEquals(0, bands.getColors()[bands.getCount() - 1] >>> 24);
+            for (int i = 1; i < bands.getCount(); i++) {
+                assertTrue(bands.getStops()[i] >= bands.getStops()[i - 1]);
+                assertEquals(model.getColor() & 0x00FFFFFF, bands.getColors()[i] & 0x00FFFFFF);
+            }
+        }
+    }
+
+    @Test
+    public void update_stacksFillsAndStrokes() throws Exception {
+        RadarModel model = new RadarModel.Builder().setRingCount(1).setEasing(RadarModel.LINEAR).build();
+        RadarFrame frame = new RadarFrame(model, 60);
+        GradientBands bands = new GradientBands(1);
+
+        frame.update(0, 100, 200);
+        bands.update(frame, 200);
+
+        int[] colors = bands.getColors();
+        assertEquals(model.getFillAlpha(), colors[0] >>> 24);
+        float stroke = 1 - (1 - model.getFillAlpha() / 255f) * (1 - model.getStrokeAlpha() / 255f);
+        assertEquals(Math.round(stroke * 255), colors[2] >>> 24);
+        assertEquals(0, colors[4] >>> 24);
+        assertEquals(99f / 200, bands.getStops()[2], 1e-6f);
+    }
+}
@@ -0,0 +1,88 @@
+package bis.radar;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+public class InterpolationTableTest {
+
+    private static final int DURATION = 3000;
+    private static final long FRAME_MILLIS = 16;
+
+    @Test
+    public void obtain_reusesTablesPerDurationAndRefreshRate() throws Exception {
+        InterpolationTable table = InterpolationTable.obtain(DURATION, 60, RadarModel.ACCELERATE_DECELERATE);
+        assertSame(table, InterpolationTable.obtain(DURATION, 60, RadarModel.ACCELERATE_DECELERATE));
+        assertNotSame(table, InterpolationTable.obtain(DURATION, 90, RadarModel.ACCELERATE_DECELERATE));
+        assertNotSame(table, InterpolationTable.obtain(DURATION, 60, RadarModel.LINEAR));
+        assertEquals(180, table.getFrameCount());
+    }
+
+    @Test
+    public void getFraction_easesFromZeroToOne() throws Exception {
+        InterpolationTable table = InterpolationTable.obtain(DURATION, 60, RadarModel.ACCELERATE_DECELERATE);
+        assertEquals(0f, table.getFraction(0), 1e-6f);
+        assertEquals(0.5f, table.getFraction(DURATION / 2), 1e-3f);
+        assertEquals(1f, table.getFraction(DURATION - 1), 1e-3f);
+        assertTrue(table.getFraction(DURATION / 4) < 0.25f);
+        assertEquals(0f, table.getFraction(DURATION), 1e-6f);
+    }
+
+    @Test
+    public void getAlphaTable_fadesToZero() throws Exception {
+        InterpolationTable table = InterpolationTable.obtain(DURATION, 60, RadarModel.ACCELERATE_DECELERATE);
+        int[] alphas = table.getAlphaTable(200);
+        assertEquals(200, alphas[0]);
+        assertEquals(0, alphas[table.getFrameCount()]);
+        assertEquals(0, alphas[table.getFrame(DURATION - 1)]);
+    }
+
+    @Test
+    public void getAlphaTable_isSharedPerStartAlpha() throws Exception {
+        InterpolationTable table = InterpolationTable.obtain(DURATION, 60, RadarModel.ACCELERATE_DECELERATE);
+        assertSame(table.getAlphaTable(200), table.getAlphaTable(200));
+        assertNotSame(table.getAlphaTable(200), table.getAlphaTable(100));
+    }
+
+    @Test
+    public void steadyStateLoop_allocatesNothing() throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeAllocationTracking(threads);
+
+        RadarFrame frame = new RadarFrame(RadarModel.getDefault(), 60);
+
+        // Warm up so that class loading and JIT compilation do not count.
+        float sink = runFrames(frame, 100000);
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        sink += runFrames(frame, 100000);
+        long after = threads.getThreadAllocatedBytes(threadId);
+
+        assertTrue(sink != 0);
+        assertEquals(0, after - before);
+    }
+
+    private static void assumeAllocationTracking(com.sun.management.ThreadMXBean threads) {
+        org.junit.Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        // Calibrate: the measurement itself must not allocate.
+        long threadId = Thread.currentThread().getId();
+        long first = threads.getThreadAllocatedBytes(threadId);
+        long second = threads.getThreadAllocatedBytes(threadId);
+        org.junit.Assume.assumeTrue(first == second);
+    }
+
+    private static float runFrames(RadarFrame frame, int frames) {
+        float sum = 0;
+        for (int i = 0; i < frames; i++) {
+            frame.update(i * FRAME_MILLIS, 100, 400);
+            for (int ring = 0; ring < frame.getCount(); ring++) {
+                sum += frame.getRadius(ring) + frame.getStrokeAlpha(ring) + frame.getFillAlpha(ring);
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,96 @@
+package bis.radar;
+
+import android.view.View;
+
+import com.facebook.AccessToken;
+import com.facebook.FacebookSdk;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Sign-in and sign-out transitions of {@link MainActivity}: UI updates are folded into
+ * one pass per frame and the radar is reused rather than reallocated.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class MainActivityRenderTest {
+
+    private MainActivity mActivity;
+    private View mSignIn;
+    private View mSignOut;
+    private Executor mStartupExecutor;
+
+    @Before
+    public void setUp() throws Exception {
+        // The SDK is initialized on the test thread, its completion is posted to the main looper.
+        mStartupExecutor = MainActivity.sStartupExecutor;
+        MainActivity.sStartupExecutor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        mActivity = Robolectric.buildActivity(MainActivity.class).create().start().resume().visible().get();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        mSignIn = mActivity.findViewById(R.id.sign_in);
+        mSignOut = mActivity.findViewById(R.id.sign_out);
+        assertTrue(mSignIn.isEnabled());
+    }
+
+    @After
+    public void tearDown() {
+        MainActivity.sStartupExecutor = mStartupExecutor;
+    }
+
+    @Test
+    public void signInAndOut_updateTheUiOnTheNextFrame() throws Exception {
+        AccessToken.setCurrentAccessToken(createToken());
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(View.GONE, mSignIn.getVisibility());
+        assertEquals(View.VISIBLE, mSignOut.getVisibility());
+
+        AccessToken.setCurrentAccessToken(null);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(View.VISIBLE, mSignIn.getVisibility());
+        assertEquals(View.GONE, mSignOut.getVisibility());
+    }
+
+    @Test
+    public void transitions_reuseOneStoppedRadar() throws Exception {
+        RadarDrawable radar = getField(mActivity, "mRadarDrawable");
+
+        for (int i = 0; i < 20; i++) {
+            AccessToken.setCurrentAccessToken(createToken());
+            AccessToken.setCurrentAccessToken(null);
+        }
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertSame(radar, getField(mActivity, "mRadarDrawable"));
+        assertFalse(radar.isRunning());
+        assertFalse((Boolean) getField(mActivity, "mUpdatePending"));
+        assertFalse(mActivity.getSharedPreferences("startup", 0).getBoolean("signed_in", true));
+    }
+
+    private static AccessToken createToken() {
+        return new AccessToken("token", FacebookSdk.getApplicationId(), "1", null, null, null, null, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T getField(Object object, String name) throws Exception {
+        Field field = MainActivity.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return (T) field.get(object);
+    }
+}
@@ -0,0 +1,76 @@
+package bis.radar;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class QualityGovernorTest {
+
+    private static final long VSYNC = 16666667L;
+
+    @Test
+    public void onFrame_stepsDownUnderSustainedJankOnly() throws Exception {
+        QualityGovernor governor = new QualityGovernor();
+        assertFalse(feed(governor, 3 * VSYNC, 5));
+        assertFalse(feed(governor, VSYNC, 100));
+        assertEquals(QualityGovernor.QUALITY_FULL, governor.getQuality());
+
+        // Every other vsync missed.
+        assertTrue(feed(governor, 2 * VSYNC, 60));
+        assertEquals(QualityGovernor.QUALITY_NO_FILL, governor.getQuality());
+    }
+
+    @Test
+    public void onFrame_ignoresAnOccasionalMissedVsync() throws Exception {
+        QualityGovernor governor = new QualityGovernor();
+        for (int i = 0; i < 600; i++) {
+            governor.onFrame(i % 30 == 0 ? 2 * VSYNC : VSYNC, VSYNC);
+        }
+        assertEquals(QualityGovernor.QUALITY_FULL, governor.getQuality());
+    }
+
+    @Test
+    public void onFrame_stepsBackUpWithFramesOnTime() throws Exception {
+        QualityGovernor governor = new QualityGovernor();
+        feed(governor, 2 * VSYNC, 200);
+        int lowered = governor.getQuality();
+        assertTrue(lowered > QualityGovernor.QUALITY_FULL);
+
+        feed(governor, VSYNC, 300);
+        assertEquals(lowered - 1, governor.getQuality());
+    }
+
+    @Test
+    public void onFrame_waitsLongerAfterAStepUpBroughtTheJankBack() throws Exception {
+        QualityGovernor governor = new QualityGovernor();
+        feed(governor, 2 * VSYNC, 40);
+        assertEquals(QualityGovernor.QUALITY_NO_FILL, governor.getQuality());
+        feed(governor, VSYNC, 250);
+        assertEquals(QualityGovernor.QUALITY_FULL, governor.getQuality());
+
+        feed(governor, 2 * VSYNC, 40);
+        assertEquals(QualityGovernor.QUALITY_NO_FILL, governor.getQuality());
+        feed(governor, VSYNC, 250);
+        assertEquals(QualityGovernor.QUALITY_NO_FILL, governor.getQuality());
+        feed(governor, VSYNC, 250);
+        assertEquals(QualityGovernor.QUALITY_FULL, governor.getQuality());
+    }
+
+    @Test
+    public void setFloor_capsTheQuality() throws Exception {
+        QualityGovernor governor = new QualityGovernor();
+        governor.setFloor(QualityGovernor.QUALITY_NO_ANTI_ALIAS);
+        assertEquals(QualityGovernor.QUALITY_NO_ANTI_ALIAS, governor.getQuality());
+
+        feed(governor, VSYNC, 1000);
+        assertEquals(QualityGovernor.QUALITY_NO_ANTI_ALIAS, governor.getQuality());
+    }
+
+    private static boolean feed(QualityGovernor governor, long intervalNanos, int frames) {
+        boolean changed = false;
+        for (int i = 0; i < frames; i++) {
+            changed |= governor.onFrame(intervalNanos, VSYNC);
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,129 @@
+package bis.radar;
+
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Radar lifecycle of {@link RadarAvatarAdapter} rows: radars start once on bind, pause
+ * while their row is detached and go back to the pool when the row is recycled.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class RadarAvatarAdapterTest {
+
+    private static final long VSYNC = 16666667L;
+    private static final int SECOND = 60;
+
+    private RadarAvatarAdapter mAdapter;
+    private FrameLayout mParent;
+    private long mFrameTime = 1000000000L;
+
+    @Before
+    public void setUp() {
+        // Frames are driven by hand, the pulse callbacks stay queued.
+        ShadowLooper.pauseMainLooper();
+        mAdapter = new RadarAvatarAdapter(RuntimeEnvironment.application);
+        mAdapter.setAvatars(Arrays.asList(new RadarAvatarAdapter.Avatar(1, null), new RadarAvatarAdapter.Avatar(2, null)));
+        mParent = new FrameLayout(RuntimeEnvironment.application);
+    }
+
+    @Test
+    public void bind_startsTheRadarOnce() throws Exception {
+        RadarAvatarAdapter.ViewHolder holder = createAttachedHolder(0);
+        RadarDrawable radar = getRadar(holder);
+        assertTrue(radar.isRunning());
+        runFrames(radar, SECOND);
+        long elapsed = getElapsed(radar);
+
+        mAdapter.onBindViewHolder(holder, 1);
+        assertSame(radar, getRadar(holder));
+        runFrames(radar, 1);
+        assertTrue(getElapsed(radar) > elapsed);
+    }
+
+    @Test
+    public void detachedRow_pausesAndResumesItsPulse() throws Exception {
+        RadarAvatarAdapter.ViewHolder holder = createAttachedHolder(0);
+        RadarDrawable radar = getRadar(holder);
+        runFrames(radar, SECOND);
+        long elapsed = getElapsed(radar);
+
+        mAdapter.onViewDetachedFromWindow(holder);
+        for (int i = 0; i < SECOND; i++) {
+            mFrameTime += VSYNC;
+            assertFalse(radar.advance(mFrameTime));
+        }
+
+        // Back on screen the pulse continues, without replaying the warm-up.
+        mAdapter.onViewAttachedToWindow(holder);
+        assertTrue(radar.isRunning());
+        runFrames(radar, 1);
+        long resumed = getElapsed(radar);
+        assertTrue("elapsed " + elapsed + " -> " + resumed, resumed >= elapsed && resumed <= elapsed + 2 * VSYNC / 1000000L);
+    }
+
+    @Test
+    public void recycledRow_releasesItsRadarForTheNextRow() throws Exception {
+        RadarAvatarAdapter.ViewHolder first = createAttachedHolder(0);
+        RadarDrawable radar = getRadar(first);
+
+        mAdapter.onViewDetachedFromWindow(first);
+        mAdapter.onViewRecycled(first);
+        assertNull(getRadar(first));
+        assertFalse(radar.isRunning());
+        assertNull(radar.getCallback());
+
+        RadarAvatarAdapter.ViewHolder second = createAttachedHolder(1);
+        assertSame(radar, getRadar(second));
+        assertTrue(radar.isRunning());
+        runFrames(radar, 1);
+        assertEquals(0, getElapsed(radar));
+    }
+
+    private RadarAvatarAdapter.ViewHolder createAttachedHolder(int position) {
+        RadarAvatarAdapter.ViewHolder holder = mAdapter.onCreateViewHolder(mParent, 0);
+        holder.itemView.findViewById(R.id.radar).layout(0, 0, 300, 300);
+        mAdapter.onBindViewHolder(holder, position);
+        mAdapter.onViewAttachedToWindow(holder);
+        return holder;
+    }
+
+    private void runFrames(RadarDrawable radar, int count) {
+        for (int i = 0; i < count; i++) {
+            mFrameTime += VSYNC;
+            radar.advance(mFrameTime);
+        }
+    }
+
+    private static RadarDrawable getRadar(RadarAvatarAdapter.ViewHolder holder) throws Exception {
+        return getField(holder, RadarAvatarAdapter.ViewHolder.class, "mRadar");
+    }
+
+    /**
+     * @return milliseconds of animation the radar has played
+     */
+    private static long getElapsed(RadarDrawable radar) throws Exception {
+        long frameTime = getField(radar, RadarDrawable.class, "mFrameTime");
+        long startTime = getField(radar, RadarDrawable.class, "mStartTime");
+        return (frameTime - startTime) / 1000000L;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T getField(Object object, Class<?> type, String name) throws Exception {
+        Field field = type.getDeclaredField(name);
+        field.setAccessible(true);
+        return (T) field.get(object);
+    }
+}
@@ -0,0 +1,92 @@
+package bis.radar;
+
+import android.graphics.drawable.Drawable;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.*;
+
+/**
+ * Reuse of stopped radars by {@link RadarDrawablePool}.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class RadarDrawablePoolTest {
+
+    private static final int MAX_SIZE = 2;
+
+    private RadarDrawablePool mPool;
+
+    @Before
+    public void setUp() {
+        ShadowLooper.pauseMainLooper();
+        mPool = new RadarDrawablePool(RadarModel.getDefault(), MAX_SIZE);
+    }
+
+    @Test
+    public void acquire_createsDrawablesOfOneStateOnThePulse() {
+        RadarDrawable first = mPool.acquire();
+        RadarDrawable second = mPool.acquire();
+        assertNotSame(first, second);
+        assertSame(first.getConstantState(), second.getConstantState());
+        assertSame(RadarPulse.getInstance(), first.getPulse());
+        assertSame(mPool.getModel(), first.getModel());
+    }
+
+    @Test
+    public void release_stopsAndDetachesTheDrawableForReuse() {
+        RadarDrawable radar = mPool.acquire();
+        radar.setCallback(new NullCallback());
+        radar.setBounds(0, 0, 200, 200);
+        radar.start();
+        assertTrue(radar.isRunning());
+
+        mPool.release(radar);
+        assertFalse(radar.isRunning());
+        assertNull(radar.getCallback());
+        assertNull(radar.getBlipLayer());
+        assertSame(radar, mPool.acquire());
+    }
+
+    @Test
+    public void release_keepsAtMostMaxSizeDrawables() {
+        RadarDrawable[] radars = new RadarDrawable[MAX_SIZE + 1];
+        for (int i = 0; i < radars.length; i++) {
+            radars[i] = mPool.acquire();
+        }
+        for (RadarDrawable radar : radars) {
+            mPool.release(radar);
+        }
+
+        assertSame(radars[1], mPool.acquire());
+        assertSame(radars[0], mPool.acquire());
+        RadarDrawable created = mPool.acquire();
+        for (RadarDrawable radar : radars) {
+            assertNotSame(radar, created);
+        }
+
+        mPool.release(radars[0]);
+        mPool.clear();
+        assertNotSame(radars[0], mPool.acquire());
+    }
+
+    private static class NullCallback implements Drawable.Callback {
+
+        @Override
+        public void invalidateDrawable(Drawable who) {
+        }
+
+        @Override
+        public void scheduleDrawable(Drawable who, Runnable what, long when) {
+        }
+
+        @Override
+        public void unscheduleDrawable(Drawable who, Runnable what) {
+        }
+    }
+}
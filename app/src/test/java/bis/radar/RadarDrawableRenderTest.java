@@ -0,0 +1,274 @@
+package bis.radar;
+
+import android.graphics.drawable.Drawable;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Frame budgets of {@link RadarDrawable}, driven frame by frame on the JVM.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class RadarDrawableRenderTest {
+
+    private static final long VSYNC = 16666667L;
+    private static final int SECOND = 60;
+    private static final int SIZE = 1080;
+    private static final int MIN_RADIUS = 150;
+
+    /**
+     * Robolectric's shadows allocate on some intercepted calls; this only catches
+     * garbage of our own, such as a paint or a shader per ring or per frame.
+     */
+    private static final long MAX_BYTES_PER_FRAME = 512;
+
+    private CountingCallback mCallback;
+    private RecordingCanvas mCanvas;
+    private long mFrameTime = 1000000000L;
+
+    @Before
+    public void setUp() {
+        // Frames are driven by hand, the Choreographer callbacks stay queued.
+        ShadowLooper.pauseMainLooper();
+        mCallback = new CountingCallback();
+        mCanvas = new RecordingCanvas();
+    }
+
+    @Test
+    public void circles_drawTwoCirclesPerRingAndInvalidateOncePerFrame() throws Exception {
+        RadarModel model = new RadarModel.Builder().setRingCount(5).build();
+        RadarDrawable radar = createRadar(model);
+        runFrames(radar, model.getWarmUp() / 16);
+
+        mCallback.invalidations = 0;
+        for (int i = 0; i < SECOND; i++) {
+            mCanvas.reset();
+            runFrame(radar);
+            assertEquals(2 * model.getRingCount(), mCanvas.getDrawCalls());
+        }
+        assertTrue("invalidations per second: " + mCallback.invalidations, mCallback.invalidations <= SECOND);
+    }
+
+    @Test
+    public void gradient_drawsOneCircleAndStopsAllocatingShadersAfterOnePeriod() throws Exception {
+        RadarModel model = RadarModel.getDefault();
+        RadarDrawable radar = createRadar(model);
+        radar.setRenderMode(RadarDrawable.RENDER_MODE_GRADIENT);
+
+        int period = model.getPeriod() * SECOND / 1000;
+        runFrames(radar, model.getWarmUp() * SECOND / 1000 + period);
+        int shaders = mCanvas.getShaderCount();
+
+        for (int i = 0; i < period; i++) {
+            mCanvas.reset();
+            runFrame(radar);
+            assertEquals(1, mCanvas.getDrawCalls());
+        }
+        assertEquals(shaders, mCanvas.getShaderCount());
+    }
+
+    @Test
+    public void frames_stayWithinTheAllocationBudget() throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        RadarDrawable radar = createRadar(RadarModel.getDefault());
+        runFrames(radar, 10 * SECOND);
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        runFrames(radar, 10 * SECOND);
+        long after = threads.getThreadAllocatedBytes(threadId);
+        long perFrame = (after - before) / (10 * SECOND);
+        assertTrue("bytes per frame: " + perFrame, perFrame <= MAX_BYTES_PER_FRAME);
+    }
+
+    @Test
+    public void hidden_neitherAdvancesNorInvalidates() throws Exception {
+        RadarDrawable radar = createRadar(RadarModel.getDefault());
+        runFrames(radar, SECOND);
+
+        radar.setVisible(false, false);
+        mCallback.invalidations = 0;
+        for (int i = 0; i < SECOND; i++) {
+            mFrameTime += VSYNC;
+            assertFalse(radar.advance(mFrameTime));
+        }
+        assertEquals(0, mCallback.invalidations);
+    }
+
+    @Test
+    public void frameStats_countEveryDraw() throws Exception {
+        RadarDrawable radar = createRadar(RadarModel.getDefault());
+        FrameStats stats = new FrameStats();
+        radar.setFrameStats(stats);
+
+        runFrames(radar, SECOND);
+        FrameStats.Snapshot snapshot = stats.snapshot();
+        assertEquals(SECOND, snapshot.getDrawCount());
+        assertEquals(0, snapshot.getSkippedFrameCount());
+        assertTrue(snapshot.getInvalidationCount() <= SECOND);
+    }
+
+    @Test
+    public void constantState_sharesConfigurationAndCachesUntilMutated() throws Exception {
+        RadarDrawable radar = createRadar(RadarModel.getDefault());
+        radar.setRenderMode(RadarDrawable.RENDER_MODE_GRADIENT);
+        RadarModel model = radar.getModel();
+        runFrames(radar, (model.getWarmUp() + model.getPeriod()) * SECOND / 1000 + 1);
+
+        RadarDrawable clone = (RadarDrawable) radar.getConstantState().newDrawable();
+        assertSame(radar.getConstantState(), clone.getConstantState());
+        assertEquals(RadarDrawable.RENDER_MODE_GRADIENT, clone.getRenderMode());
+        clone.setCallback(mCallback);
+        clone.setBounds(0, 0, SIZE, SIZE);
+        clone.setMinRadius(MIN_RADIUS);
+        clone.start();
+        runFrames(clone, model.getWarmUp() * SECOND / 1000 + 2);
+
+        // Past its warm-up the clone only draws shaders the first drawable cached.
+        int shaders = mCanvas.getShaderCount();
+        runFrames(clone, model.getPeriod() * SECOND / 1000);
+        assertEquals(shaders, mCanvas.getShaderCount());
+
+        clone.mutate();
+        assertNotSame(radar.getConstantState(), clone.getConstantState());
+        clone.setRenderMode(RadarDrawable.RENDER_MODE_CIRCLES);
+        assertEquals(RadarDrawable.RENDER_MODE_GRADIENT, radar.getRenderMode());
+    }
+
+    @Test
+    public void constantState_sharesTheFlipbookOfTheSameGeometry() throws Exception {
+        // Small enough for the default budget to hold one period.
+        RadarDrawable radar = createRadar(RadarModel.getDefault());
+        radar.setBounds(0, 0, SIZE / 2, SIZE / 2);
+        radar.setRenderMode(RadarDrawable.RENDER_MODE_FLIPBOOK);
+        runFrame(radar);
+        FlipbookPlan plan = radar.getFlipbookPlan();
+        assertTrue(plan.isPrerendered());
+
+        RadarDrawable clone = (RadarDrawable) radar.getConstantState().newDrawable();
+        clone.setCallback(mCallback);
+        clone.setBounds(0, 0, SIZE / 2, SIZE / 2);
+        clone.setMinRadius(MIN_RADIUS);
+        clone.start();
+        runFrame(clone);
+        assertSame(plan, clone.getFlipbookPlan());
+
+        // Another size renders frames of its own and leaves the shared ones alone.
+        clone.setBounds(0, 0, SIZE / 3, SIZE / 3);
+        runFrame(clone);
+        assertNotSame(plan, clone.getFlipbookPlan());
+        runFrame(radar);
+        assertSame(plan, radar.getFlipbookPlan());
+    }
+
+    @Test
+    public void mutate_givesANewSpriteBudgetACacheOfItsOwn() throws Exception {
+        RadarDrawable radar = createRadar(RadarModel.getDefault());
+        radar.setRenderMode(RadarDrawable.RENDER_MODE_SPRITES);
+        RadarModel model = radar.getModel();
+        runFrames(radar, model.getWarmUp() * SECOND / 1000 + 1);
+
+        RadarDrawable clone = (RadarDrawable) radar.getConstantState().newDrawable();
+        clone.mutate();
+        clone.setCallback(mCallback);
+        clone.setBounds(0, 0, SIZE, SIZE);
+        clone.setMinRadius(MIN_RADIUS);
+        clone.setSpriteCacheSize(256 * 1024);
+        clone.start();
+        runFrames(clone, model.getWarmUp() * SECOND / 1000 + 1);
+
+        // Too small for sprites, the clone draws circles; the first drawable still blits.
+        mCanvas.reset();
+        runFrame(clone);
+        assertTrue(mCanvas.getCircles() > 0);
+        assertEquals(0, mCanvas.getBitmaps());
+        mCanvas.reset();
+        runFrame(radar);
+        assertEquals(0, mCanvas.getCircles());
+        assertTrue(mCanvas.getBitmaps() > 0);
+    }
+
+    @Test
+    public void constantState_keepsMinRadiusPerDrawable() throws Exception {
+        RadarDrawable radar = createRadar(RadarModel.getDefault());
+        RadarDrawable clone = (RadarDrawable) radar.getConstantState().newDrawable();
+        clone.setCallback(mCallback);
+        clone.setBounds(0, 0, MIN_RADIUS, MIN_RADIUS);
+        clone.start();
+        assertTrue(clone.isRunning());
+
+        radar.setMinRadius(MIN_RADIUS / 4);
+        clone.setMinRadius(MIN_RADIUS / 2);
+        assertFalse(clone.isRunning());
+        assertTrue(radar.isRunning());
+    }
+
+    @Test
+    public void adaptiveQuality_followsMissedVsyncsAndTheFloor() throws Exception {
+        RadarDrawable radar = createRadar(RadarModel.getDefault());
+        radar.setAdaptiveQuality(true);
+        runFrames(radar, SECOND);
+        assertEquals(QualityGovernor.QUALITY_FULL, radar.getQuality());
+
+        for (int i = 0; i < SECOND; i++) {
+            mFrameTime += VSYNC;
+            runFrame(radar);
+        }
+        assertTrue(radar.getQuality() > QualityGovernor.QUALITY_FULL);
+
+        radar.setAdaptiveQuality(false);
+        radar.setQualityFloor(QualityGovernor.QUALITY_NO_ANTI_ALIAS);
+        assertEquals(QualityGovernor.QUALITY_NO_ANTI_ALIAS, radar.getQuality());
+    }
+
+    private RadarDrawable createRadar(RadarModel model) {
+        RadarDrawable radar = new RadarDrawable(model);
+        radar.setCallback(mCallback);
+        radar.setBounds(0, 0, SIZE, SIZE);
+        radar.setMinRadius(MIN_RADIUS);
+        radar.start();
+        return radar;
+    }
+
+    private void runFrames(RadarDrawable radar, int count) {
+        for (int i = 0; i < count; i++) {
+            runFrame(radar);
+        }
+    }
+
+    private void runFrame(RadarDrawable radar) {
+        mFrameTime += VSYNC;
+        radar.advance(mFrameTime);
+        radar.draw(mCanvas);
+    }
+
+    private static class CountingCallback implements Drawable.Callback {
+
+        int invalidations;
+
+        @Override
+        public void invalidateDrawable(Drawable who) {
+            invalidations++;
+        }
+
+        @Override
+        public void scheduleDrawable(Drawable who, Runnable what, long when) {
+        }
+
+        @Override
+        public void unscheduleDrawable(Drawable who, Runnable what) {
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package bis.radar;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class RadarModelTest {
+
+    @Test
+    public void defaultModel_matchesOriginalRadar() throws Exception {
+        RadarModel model = RadarModel.getDefault();
+        assertEquals(3, model.getRingCount());
+        assertEquals(1000, model.getStagger());
+        assertEquals(3000, model.getDuration());
+        assertSame(RadarModel.ACCELERATE_DECELERATE, model.getEasing());
+        assertEquals(2000, model.getStartDelay(2));
+    }
+
+    @Test
+    public void getPeriod_isTheShortestRepeat() throws Exception {
+        assertEquals(1000, RadarModel.getDefault().getPeriod());
+        assertEquals(1000, createModel(3, 2000, 3000).getPeriod());
+        assertEquals(1500, createModel(2, 4500, 3000).getPeriod());
+        assertEquals(3000, createModel(2, 1000, 3000).getPeriod());
+        assertEquals(3000, createModel(3, 0, 3000).getPeriod());
+
+        // Once warmed up, the rings of a period later sit at the same radii.
+        RadarModel model = createModel(3, 2000, 3000);
+        RadarFrame frame = new RadarFrame(model, 60);
+        for (int t = 0; t < model.getDuration(); t += 100) {
+            frame.update(model.getWarmUp() + t, 10, 110);
+            float[] radii = getSortedRadii(frame);
+            frame.update(model.getWarmUp() + t + model.getPeriod(), 10, 110);
+            assertArrayEquals(radii, getSortedRadii(frame), 1e-3f);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builder_rejectsZeroRings() throws Exception {
+        new RadarModel.Builder().setRingCount(0);
+    }
+
+    @Test
+    public void update_showsRingsAfterTheirStartDelay() throws Exception {
+        RadarModel model = new RadarModel.Builder()
+                .setRingCount(8)
+                .setStagger(250)
+                .setDuration(2000)
+                .setEasing(RadarModel.LINEAR)
+                .build();
+        RadarFrame frame = new RadarFrame(model, 60);
+
+        frame.update(0, 10, 110);
+        assertEquals(1, frame.getCount());
+        assertEquals(10f, frame.getRadius(0), 1e-3f);
+        assertEquals(model.getStrokeAlpha(), frame.getStrokeAlpha(0));
+
+        frame.update(1000, 10, 110);
+        assertEquals(5, frame.getCount());
+        assertEquals(60f, frame.getRadius(0), 1e-3f);
+        assertEquals(10f, frame.getRadius(4), 1e-3f);
+
+        frame.update(10000, 10, 110);
+        assertEquals(8, frame.getCount());
+    }
+
+    @Test
+    public void buildUpon_copiesEveryField() throws Exception {
+        RadarModel model = new RadarModel.Builder()
+                .setRingCount(5)
+                .setColor(0xFFFF0000)
+                .setStrokeWidth(4)
+                .build();
+        RadarModel copy = model.buildUpon().setStagger(500).build();
+        assertEquals(5, copy.getRingCount());
+        assertEquals(0xFFFF0000, copy.getColor());
+        assertEquals(4f, copy.getStrokeWidth(), 0f);
+        assertEquals(500, copy.getStagger());
+    }
+
+    @Test
+    public void update_reportsWhetherTheFrameChanged() throws Exception {
+        RadarFrame frame = new RadarFrame(RadarModel.getDefault(), 60);
+
+        assertTrue(frame.update(0, 10, 20));
+        assertFalse(frame.update(0, 10, 20));
+        assertTrue(frame.update(1500, 10, 20));
+        assertTrue(frame.update(1500, 10, 300));
+        assertEquals(2, frame.getCount());
+        assertEquals(frame.getRadius(0), frame.getMaxRadius(), 0f);
+    }
+
+    private static RadarModel createModel(int ringCount, int stagger, int duration) {
+        return new RadarModel.Builder()
+                .setRingCount(ringCount)
+                .setStagger(stagger)
+                .setDuration(duration)
+                .build();
+    }
+
+    private static float[] getSortedRadii(RadarFrame frame) {
+        float[] radii = new float[frame.getCount()];
+        for (int i = 0; i < radii.length; i++) {
+            radii[i] = frame.getRadius(i);
+        }
+        Arrays.sort(radii);
+        return radii;
+    }
+}
@@ -0,0 +1,92 @@
+package bis.radar;
+
+import android.content.Context;
+import android.graphics.Rect;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.*;
+
+/**
+ * Partial invalidation of {@link RadarView}: the view invalidates the rect the radar
+ * reports as dirty rather than its whole bounds. Whether the redraw is limited to
+ * that rect is up to the rendering pipeline, see {@link RadarView}.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class RadarViewTest {
+
+    private static final long VSYNC = 16666667L;
+    private static final int SIZE = 1080;
+    private static final int MIN_RADIUS = 50;
+
+    private RecordingView mView;
+    private RadarDrawable mRadar;
+    private long mFrameTime = 1000000000L;
+
+    @Before
+    public void setUp() {
+        // Frames are driven by hand, the Choreographer callbacks stay queued.
+        ShadowLooper.pauseMainLooper();
+        mView = new RecordingView(RuntimeEnvironment.application);
+        mView.layout(0, 0, SIZE, SIZE);
+        mRadar = new RadarDrawable();
+        mRadar.setMinRadius(MIN_RADIUS);
+        mView.setRadar(mRadar);
+        mRadar.start();
+    }
+
+    @Test
+    public void frames_passOnlyTheAreaOfTheRingsToInvalidate() {
+        runFrames(10);
+
+        Rect dirty = mView.mDirty;
+        assertTrue("invalidations: " + mView.mInvalidations, mView.mInvalidations > 1);
+        assertTrue(new Rect(0, 0, SIZE, SIZE).contains(dirty));
+        assertTrue("dirty: " + dirty, dirty.width() < SIZE / 2 && dirty.height() < SIZE / 2);
+        assertEquals(SIZE / 2, dirty.centerX());
+        assertEquals(SIZE / 2, dirty.centerY());
+        assertEquals(mRadar.getDirtyBounds(), dirty);
+    }
+
+    @Test
+    public void setRadar_detachesThePreviousRadar() {
+        runFrames(2);
+
+        mView.setRadar(null);
+        assertNull(mRadar.getCallback());
+        mView.mInvalidations = 0;
+        runFrames(10);
+        assertEquals(0, mView.mInvalidations);
+    }
+
+    private void runFrames(int count) {
+        for (int i = 0; i < count; i++) {
+            mFrameTime += VSYNC;
+            mRadar.advance(mFrameTime);
+        }
+    }
+
+    private static class RecordingView extends RadarView {
+
+        final Rect mDirty = new Rect();
+        int mInvalidations;
+
+        RecordingView(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void invalidate(int l, int t, int r, int b) {
+            mDirty.set(l, t, r, b);
+            mInvalidations++;
+            super.invalidate(l, t, r, b);
+        }
+    }
+}
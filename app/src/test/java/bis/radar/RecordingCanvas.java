@@ -0,0 +1,105 @@
+package bis.radar;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Canvas that draws nothing and counts the draw calls made on it, and the distinct
+ * shaders they were made with.
+ */
+public class RecordingCanvas extends Canvas {
+
+    private int mDrawCalls;
+    private int mCircles;
+    private int mBitmaps;
+    private final Set<Shader> mShaders = Collections.newSetFromMap(new IdentityHashMap<Shader, Boolean>());
+
+    public int getDrawCalls() {
+        return mDrawCalls;
+    }
+
+    public int getCircles() {
+        return mCircles;
+    }
+
+    public int getBitmaps() {
+        return mBitmaps;
+    }
+
+    public int getShaderCount() {
+        return mShaders.size();
+    }
+
+    public void reset() {
+        mDrawCalls = 0;
+        mCircles = 0;
+        mBitmaps = 0;
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius, Paint paint) {
+        mCircles++;
+        record(paint);
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+        mBitmaps++;
+        record(paint);
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, Rect src, RectF dst, Paint paint) {
+        mBitmaps++;
+        record(paint);
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, Rect src, Rect dst, Paint paint) {
+        mBitmaps++;
+        record(paint);
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, Matrix matrix, Paint paint) {
+        mBitmaps++;
+        record(paint);
+    }
+
+    @Override
+    public void drawRect(Rect rect, Paint paint) {
+        record(paint);
+    }
+
+    @Override
+    public void drawRect(RectF rect, Paint paint) {
+        record(paint);
+    }
+
+    @Override
+    public void drawPath(Path path, Paint paint) {
+        record(paint);
+    }
+
+    @Override
+    public void drawPaint(Paint paint) {
+        record(paint);
+    }
+
+    private void record(Paint paint) {
+        mDrawCalls++;
+        if (paint != null && paint.getShader() != null) {
+            mShaders.add(paint.getShader());
+        }
+    }
+}
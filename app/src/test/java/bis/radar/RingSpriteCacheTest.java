@@ -0,0 +1,64 @@
+package bis.radar;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Bucket counts and sprite reuse of {@link RingSpriteCache} at phone-sized radars.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class RingSpriteCacheTest {
+
+    private static final float REFRESH_RATE = 60;
+    private static final int MAX_BYTES = 4 * 1024 * 1024;
+    private static final float MIN_RADIUS = 150;
+
+    @Test
+    public void realisticRadius_reusesEverySpriteAfterTheFirstPeriod() {
+        RadarModel model = RadarModel.getDefault();
+        RingSpriteCache cache = new RingSpriteCache(model, MAX_BYTES);
+        cache.setGeometry(MIN_RADIUS, 400);
+        assertTrue("buckets: " + cache.getBucketCount(), cache.getBucketCount() >= 8);
+
+        RadarFrame frame = new RadarFrame(model, REFRESH_RATE);
+        RecordingCanvas canvas = new RecordingCanvas();
+        int frames = (int) ((model.getWarmUp() + 2 * model.getPeriod()) * REFRESH_RATE / 1000);
+        for (int i = 0; i < frames; i++) {
+            frame.update((long) (i * 1000 / REFRESH_RATE), MIN_RADIUS, 400);
+            for (int ring = 0; ring < frame.getCount(); ring++) {
+                assertTrue(cache.draw(canvas, 400, 400, frame.getRadius(ring), frame.getFraction(ring)));
+            }
+        }
+
+        // Nothing is evicted: each bucket is rendered once, every other ring is four
+        // blits of its quarter sprite.
+        assertTrue("misses: " + cache.getMissCount(), cache.getMissCount() <= cache.getBucketCount());
+        assertTrue("hits: " + cache.getHitCount(), cache.getHitCount() > 0);
+        assertEquals(canvas.getBitmaps(), 4 * (cache.getHitCount() + cache.getMissCount()));
+    }
+
+    @Test
+    public void fullScreenRadius_fitsTheDefaultBudget() {
+        RingSpriteCache cache = new RingSpriteCache(RadarModel.getDefault(), MAX_BYTES);
+        cache.setGeometry(MIN_RADIUS, 600);
+        assertTrue("buckets: " + cache.getBucketCount(), cache.getBucketCount() >= 16);
+        assertTrue(cache.draw(new RecordingCanvas(), 600, 600, 599, 0.5f));
+    }
+
+    @Test
+    public void budgetTooSmall_drawsRingsDirectly() {
+        RingSpriteCache cache = new RingSpriteCache(RadarModel.getDefault(), 256 * 1024);
+        cache.setGeometry(MIN_RADIUS, 400);
+        assertEquals(0, cache.getBucketCount());
+        assertEquals(0, cache.getBucketSize(), 0);
+        assertFalse(cache.draw(new RecordingCanvas(), 400, 400, 300, 0.5f));
+
+        cache.setMaxBytes(MAX_BYTES);
+        assertTrue(cache.getBucketCount() > 0);
+    }
+}
@@ -0,0 +1,31 @@
+package bis.radar;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StartupTraceTest {
+
+    @Test
+    public void mark_isRelativeToTheStart() throws Exception {
+        StartupTrace trace = new StartupTrace(1000000000L);
+        trace.mark("content view", 1012000000L);
+        trace.mark("first frame", 1085000000L);
+
+        assertTrue(trace.hasPhase("content view"));
+        assertFalse(trace.hasPhase("sdk initialized"));
+        assertEquals(12f, trace.getMillis("content view"), 1e-3f);
+        assertEquals(73f, trace.getMillis("content view", "first frame"), 1e-3f);
+        assertEquals(-1f, trace.getMillis("sdk initialized"), 0f);
+        assertEquals("StartupTrace{content view +12.0 ms, first frame +85.0 ms}", trace.toString());
+    }
+
+    @Test
+    public void mark_growsPastTheInitialCapacity() throws Exception {
+        StartupTrace trace = new StartupTrace(0);
+        for (int i = 0; i < 20; i++) {
+            trace.mark("phase " + i, i * 1000000L);
+        }
+        assertEquals(19f, trace.getMillis("phase 19"), 1e-3f);
+    }
+}
@@ -0,0 +1,32 @@
+package de.hdodenhof.circleimageview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CircleGeometryTest {
+
+    @Test
+    public void setBounds_onlyReportsChanges() throws Exception {
+        CircleGeometry geometry = new CircleGeometry();
+        assertTrue(geometry.setBounds(100, 80, 2, false));
+        assertFalse(geometry.setBounds(100, 80, 2, false));
+        assertTrue(geometry.setBounds(100, 80, 2, true));
+
+        assertTrue(geometry.setBitmapSize(50, 50));
+        assertFalse(geometry.setBitmapSize(50, 50));
+    }
+
+    @Test
+    public void center_cropsTheBitmapInsideTheBorder() throws Exception {
+        CircleGeometry geometry = new CircleGeometry();
+        geometry.setBounds(100, 80, 2, false);
+        geometry.setBitmapSize(200, 100);
+
+        assertEquals(39f, geometry.getBorderRadius(), 0f);
+        assertEquals(38f, geometry.getDrawableRadius(), 0f);
+        assertEquals(0.76f, geometry.getScale(), 1e-6f);
+        assertEquals(-25f, geometry.getTranslateX(), 0f);
+        assertEquals(2f, geometry.getTranslateY(), 0f);
+    }
+}
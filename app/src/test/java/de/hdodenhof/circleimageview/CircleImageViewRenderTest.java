@@ -0,0 +1,173 @@
+package de.hdodenhof.circleimageview;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
+import android.graphics.Rect;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.ColorDrawable;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.lang.reflect.Field;
+
+import bis.radar.BuildConfig;
+import bis.radar.RecordingCanvas;
+
+import static org.junit.Assert.*;
+
+/**
+ * Shader and bitmap allocations and draw calls of {@link CircleImageView}.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class CircleImageViewRenderTest {
+
+    private static final int SIZE = 300;
+
+    private CircleImageView mView;
+    private RecordingCanvas mCanvas;
+
+    @Before
+    public void setUp() {
+        mView = new CircleImageView(RuntimeEnvironment.application);
+        mView.setBorderWidth(4);
+        mView.measure(View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+        mView.layout(0, 0, SIZE, SIZE);
+        mCanvas = new RecordingCanvas();
+    }
+
+    @Test
+    public void setImageDrawable_reusesTheShaderOfTheSameBitmap() throws Exception {
+        BitmapDrawable drawable = new BitmapDrawable(mView.getResources(), Bitmap.createBitmap(600, 400, Bitmap.Config.ARGB_8888));
+        mView.setImageDrawable(drawable);
+        BitmapShader shader = getField(mView, "mBitmapShader");
+        assertNotNull(shader);
+
+        for (int i = 0; i < 10; i++) {
+            mView.setImageDrawable(drawable);
+        }
+        assertSame(shader, getField(mView, "mBitmapShader"));
+    }
+
+    @Test
+    public void onDraw_drawsTheImageAndTheBorderOnly() throws Exception {
+        mView.setImageDrawable(new BitmapDrawable(mView.getResources(), Bitmap.createBitmap(600, 400, Bitmap.Config.ARGB_8888)));
+        mView.onDraw(mCanvas);
+        assertEquals(2, mCanvas.getCircles());
+        assertEquals(2, mCanvas.getDrawCalls());
+    }
+
+    @Test
+    public void setImageDrawable_drawsOtherDrawablesWithoutABitmap() throws Exception {
+        ColorDrawable drawable = new ColorDrawable(0xFF336699);
+        mView.setImageDrawable(drawable);
+        assertNull(getField(mView, "mBitmap"));
+        assertNull(getField(mView, "mBitmapShader"));
+
+        // Laid out for the clip on setup and on layout, never while drawing.
+        mView.layout(0, 0, SIZE, SIZE);
+        Rect bounds = new Rect(drawable.getBounds());
+        assertEquals(0, bounds.left);
+        assertEquals(0, bounds.top);
+        assertTrue(bounds.width() < SIZE);
+        mView.onDraw(mCanvas);
+        assertEquals(0, mCanvas.getBitmaps());
+        assertEquals(bounds, drawable.getBounds());
+    }
+
+    @Test
+    public void setColorFilter_filtersDrawablesDrawnClipped() throws Exception {
+        FilterRecordingDrawable drawable = new FilterRecordingDrawable();
+        mView.setImageDrawable(drawable);
+        ColorFilter filter = new PorterDuffColorFilter(Color.RED, PorterDuff.Mode.SRC_ATOP);
+        mView.setColorFilter(filter);
+        assertSame(filter, drawable.mColorFilter);
+
+        FilterRecordingDrawable next = new FilterRecordingDrawable();
+        mView.setImageDrawable(next);
+        assertSame(filter, next.mColorFilter);
+
+        mView.setColorFilter(null);
+        assertNull(next.mColorFilter);
+    }
+
+    @Test
+    public void setImageAvatar_keepsOnlyTheDownsampledAvatarAndBlitsIt() throws Exception {
+        AvatarCache.getInstance().clear();
+        mView.setImageAvatar("profile", Bitmap.createBitmap(1200, 900, Bitmap.Config.ARGB_8888));
+
+        Bitmap avatar = ((BitmapDrawable) mView.getDrawable()).getBitmap();
+        assertTrue(avatar.getWidth() < SIZE);
+        assertSame(avatar, AvatarCache.getInstance().get("profile", avatar.getWidth()));
+
+        mView.onDraw(mCanvas);
+        assertEquals(1, mCanvas.getBitmaps());
+        assertEquals(1, mCanvas.getCircles());
+    }
+
+    @Test
+    public void setImageAvatar_cutsANewAvatarOnceItsKeyIsRemoved() throws Exception {
+        AvatarCache.getInstance().clear();
+        mView.setImageAvatar("profile", Bitmap.createBitmap(1200, 900, Bitmap.Config.ARGB_8888));
+        Bitmap avatar = ((BitmapDrawable) mView.getDrawable()).getBitmap();
+        mView.setImageAvatar("profile", Bitmap.createBitmap(1200, 900, Bitmap.Config.ARGB_8888));
+        assertSame(avatar, ((BitmapDrawable) mView.getDrawable()).getBitmap());
+
+        AvatarCache.getInstance().remove("profile");
+        assertNull(AvatarCache.getInstance().get("profile", avatar.getWidth()));
+        mView.setImageAvatar("profile", Bitmap.createBitmap(1200, 900, Bitmap.Config.ARGB_8888));
+        assertNotSame(avatar, ((BitmapDrawable) mView.getDrawable()).getBitmap());
+    }
+
+    @Test
+    public void setImageAvatar_neverCachesAnAvatarScaledUpFromTheSmallOne() throws Exception {
+        AvatarCache.getInstance().clear();
+        mView.setImageAvatar("profile", Bitmap.createBitmap(1200, 900, Bitmap.Config.ARGB_8888));
+        Bitmap avatar = ((BitmapDrawable) mView.getDrawable()).getBitmap();
+
+        mView.layout(0, 0, 2 * SIZE, 2 * SIZE);
+        assertSame(avatar, ((BitmapDrawable) mView.getDrawable()).getBitmap());
+        for (int diameter = avatar.getWidth() + 1; diameter <= 2 * SIZE; diameter++) {
+            assertNull(AvatarCache.getInstance().get("profile", diameter));
+        }
+
+        // Still drawn, scaled up through the shader rather than blitted.
+        mCanvas.reset();
+        mView.onDraw(mCanvas);
+        assertEquals(0, mCanvas.getBitmaps());
+        assertEquals(2, mCanvas.getCircles());
+    }
+
+    private static class FilterRecordingDrawable extends ColorDrawable {
+
+        ColorFilter mColorFilter;
+
+        FilterRecordingDrawable() {
+            super(0xFF336699);
+        }
+
+        @Override
+        public void setColorFilter(ColorFilter colorFilter) {
+            mColorFilter = colorFilter;
+            super.setColorFilter(colorFilter);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T getField(Object object, String name) throws Exception {
+        Field field = CircleImageView.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return (T) field.get(object);
+    }
+}
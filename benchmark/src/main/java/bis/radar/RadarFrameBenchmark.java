@@ -0,0 +1,79 @@
+package bis.radar;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame cost of a radar against its ring count: advancing the {@link RadarFrame},
+ * reading it the way the circle loop of {@code RadarDrawable.draw()} does, and
+ * encoding it as gradient stops for the gradient render mode.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class RadarFrameBenchmark {
+
+    private static final float REFRESH_RATE = 60;
+    private static final long FRAME_MILLIS = 16;
+    private static final float MIN_RADIUS = 150;
+    private static final float MAX_RADIUS = 540;
+
+    @Param({"1", "3", "8", "16"})
+    public int ringCount;
+
+    private RadarFrame mFrame;
+    private GradientBands mBands;
+    private float mOuterRadius;
+    private long mElapsed;
+
+    @Setup
+    public void setUp() {
+        RadarModel model = new RadarModel.Builder()
+                .setRingCount(ringCount)
+                .build();
+        mFrame = new RadarFrame(model, REFRESH_RATE);
+        mBands = new GradientBands(ringCount);
+        mOuterRadius = GradientBands.getOuterRadius(MAX_RADIUS, model.getStrokeWidth());
+        mElapsed = model.getWarmUp();
+    }
+
+    @Benchmark
+    public boolean update() {
+        mElapsed += FRAME_MILLIS;
+        return mFrame.update(mElapsed, MIN_RADIUS, MAX_RADIUS);
+    }
+
+    @Benchmark
+    public void updateAndDrawCircles(Blackhole blackhole) {
+        mElapsed += FRAME_MILLIS;
+        mFrame.update(mElapsed, MIN_RADIUS, MAX_RADIUS);
+        for (int i = 0; i < mFrame.getCount(); i++) {
+            blackhole.consume(mFrame.getRadius(i));
+            blackhole.consume(mFrame.getFillAlpha(i));
+            blackhole.consume(mFrame.getStrokeAlpha(i));
+        }
+    }
+
+    @Benchmark
+    public float[] updateAndEncodeGradient() {
+        mElapsed += FRAME_MILLIS;
+        mFrame.update(mElapsed, MIN_RADIUS, MAX_RADIUS);
+        mBands.update(mFrame, mOuterRadius);
+        return mBands.getStops();
+    }
+}
@@ -0,0 +1,54 @@
+package de.hdodenhof.circleimageview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Geometry work of {@code CircleImageView.setup()}: the common case where nothing
+ * changed, and a full recomputation of the circle and the center-crop matrix.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CircleGeometryBenchmark {
+
+    private CircleGeometry mGeometry;
+    private int mSize;
+
+    @Setup
+    public void setUp() {
+        mGeometry = new CircleGeometry();
+        mSize = 450;
+        mGeometry.setBounds(mSize, mSize, 3, false);
+        mGeometry.setBitmapSize(640, 480);
+    }
+
+    @Benchmark
+    public boolean setupUnchanged() {
+        boolean changed = mGeometry.setBounds(mSize, mSize, 3, false);
+        changed |= mGeometry.setBitmapSize(640, 480);
+        return changed;
+    }
+
+    @Benchmark
+    public float setupResized() {
+        // Alternate between two sizes so that every call recomputes.
+        mSize ^= 1;
+        mGeometry.setBounds(mSize, mSize, 3, false);
+        mGeometry.setBitmapSize(640, 480);
+        return mGeometry.getScale() + mGeometry.getTranslateX() + mGeometry.getTranslateY();
+    }
+}